@@ -0,0 +1,87 @@
+package cs3500.freecell.bench;
+
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cs3500.freecell.controller.CommandTokenizer;
+
+/**
+ * Benchmarks of the controller's input parsing, done by CommandTokenizer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+  private CommandTokenizer tokens;
+
+  /**
+   * Build a tokenizer that reads the same commands over and over.
+   */
+  @Setup
+  public void setup() {
+    tokens = new CommandTokenizer(new RepeatingReadable("C1 7 O1\nC12 13 F4\n"));
+  }
+
+  /**
+   * CommandTokenizer.next, one token.
+   *
+   * @return the length of the token read.
+   */
+  @Benchmark
+  public int readArg() {
+    tokens.next();
+    return tokens.length();
+  }
+
+  /**
+   * One whole move: a source pile, a card index and a destination pile, read and parsed.
+   *
+   * @return the sum of the parsed numbers.
+   */
+  @Benchmark
+  public int parseMove() {
+    tokens.next();
+    int sum = tokens.parsePileType().ordinal() + tokens.parseInt(1);
+    tokens.next();
+    sum += tokens.parseInt(0);
+    tokens.next();
+    return sum + tokens.parsePileType().ordinal() + tokens.parseInt(1);
+  }
+
+  /**
+   * A Readable that endlessly repeats the given text.
+   */
+  private static final class RepeatingReadable implements Readable {
+    private final String text;
+    private int pos = 0;
+
+    RepeatingReadable(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public int read(CharBuffer cb) {
+      int n = 0;
+      while (cb.hasRemaining()) {
+        cb.put(text.charAt(pos));
+        pos = (pos + 1) % text.length();
+        n++;
+      }
+      return n;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+package cs3500.freecell.bench;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cs3500.freecell.cards.ICard;
+import cs3500.freecell.model.AFreecellModel;
+import cs3500.freecell.model.DealGenerator;
+import cs3500.freecell.model.MoveResult;
+import cs3500.freecell.model.Moves;
+import cs3500.freecell.model.PackedState;
+import cs3500.freecell.model.PileType;
+import cs3500.freecell.model.SaveGameCodec;
+import cs3500.freecell.model.SimpleFreecellModel;
+import cs3500.freecell.model.multimove.MultiMoveFreecellModel;
+
+/**
+ * Benchmarks of the model hot paths: single card moves, block moves and starting a game.
+ * Each move benchmark moves cards to another pile and back, so the position never changes, then
+ * clears the journal, so it never grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+  // card indices, see Card.indexOf
+  private static final byte NINE_HEART = 34;
+  private static final byte NINE_DIAMOND = 33;
+  private static final byte EIGHT_SPADE = 31;
+  private static final byte SEVEN_HEART = 26;
+  private static final byte SIX_CLUB = 20;
+
+  private SimpleFreecellModel single;
+  private MultiMoveFreecellModel multi;
+  private SimpleFreecellModel starter;
+  private List<ICard> deck;
+  private MultiMoveFreecellModel dealt;
+  private int[] moves;
+  private int firstMove;
+  private MultiMoveFreecellModel played;
+  private ByteBuffer saved;
+
+  /**
+   * Build the positions used by the benchmarks.
+   */
+  @Setup
+  public void setup() {
+    // C1: 9♥ 8♠, C2: 9♦ - the 8♠ can move between the two
+    single = new SimpleFreecellModel();
+    single.restoreState(position(new byte[] {NINE_HEART, EIGHT_SPADE}, new byte[] {NINE_DIAMOND}));
+
+    // C1: 9♥ 8♠ 7♥ 6♣, C2: 9♦ - the 8♠ 7♥ 6♣ block can move between the two
+    multi = new MultiMoveFreecellModel();
+    multi.restoreState(position(new byte[] {NINE_HEART, EIGHT_SPADE, SEVEN_HEART, SIX_CLUB},
+            new byte[] {NINE_DIAMOND}));
+
+    starter = new SimpleFreecellModel();
+    ICard[] cards = new ICard[52];
+    DealGenerator.deal(1, cards);
+    deck = Arrays.asList(cards);
+
+    dealt = new MultiMoveFreecellModel();
+    dealt.startDeal(1, 8, 4);
+    moves = new int[Moves.maxLegalMoves(8, 4)];
+    dealt.getLegalMoves(moves);
+    firstMove = moves[0];
+
+    // deal 1 after 60 random moves, some undone
+    played = new MultiMoveFreecellModel();
+    played.startDeal(1, 8, 4);
+    Random random = new Random(1);
+    for (int i = 0; i < 60; i++) {
+      int n = played.getLegalMoves(moves);
+      if (n > 0) {
+        Moves.apply(played, moves[random.nextInt(n)]);
+      }
+    }
+    played.undo();
+    played.undo();
+    saved = ByteBuffer.allocateDirect(SaveGameCodec.maxEncodedSize(played));
+    SaveGameCodec.encode(played, 1, saved);
+    saved.flip();
+  }
+
+  /**
+   * A position with 8 cascade piles, 4 empty open piles and empty foundations, where the first
+   * two cascade piles hold the given cards and the others are empty.
+   */
+  private static PackedState position(byte[] first, byte[] second) {
+    byte[][] cascades = new byte[8][];
+    int[] lengths = new int[8];
+    for (int i = 0; i < 8; i++) {
+      cascades[i] = new byte[0];
+    }
+    cascades[0] = first;
+    lengths[0] = first.length;
+    cascades[1] = second;
+    lengths[1] = second.length;
+    byte[] opens = {PackedState.EMPTY, PackedState.EMPTY, PackedState.EMPTY, PackedState.EMPTY};
+    return PackedState.of(cascades, lengths, opens, new int[4], new int[4]);
+  }
+
+  /**
+   * SimpleFreecellModel.move, one card to another cascade pile and back.
+   */
+  @Benchmark
+  @OperationsPerInvocation(2)
+  public void simpleMove() {
+    single.move(PileType.CASCADE, 0, 1, PileType.CASCADE, 1);
+    single.move(PileType.CASCADE, 1, 1, PileType.CASCADE, 0);
+    single.clearJournal();
+  }
+
+  /**
+   * MultiMoveFreecellModel.move, a block of three cards to another cascade pile and back.
+   */
+  @Benchmark
+  @OperationsPerInvocation(2)
+  public void multiMove() {
+    multi.move(PileType.CASCADE, 0, 1, PileType.CASCADE, 1);
+    multi.move(PileType.CASCADE, 1, 1, PileType.CASCADE, 0);
+    multi.clearJournal();
+  }
+
+  /**
+   * tryMove of moves that are rejected: a card onto a card of its own color, a card that is not
+   * on top and a block that does not fit, the cases search code mostly sees.
+   */
+  @Benchmark
+  @OperationsPerInvocation(3)
+  public int rejectedMoves() {
+    MoveResult a = single.tryMove(PileType.CASCADE, 1, 0, PileType.CASCADE, 0);
+    MoveResult b = single.tryMove(PileType.CASCADE, 0, 0, PileType.CASCADE, 1);
+    MoveResult c = multi.tryMove(PileType.CASCADE, 0, 2, PileType.CASCADE, 1);
+    return a.ordinal() + b.ordinal() + c.ordinal();
+  }
+
+  /**
+   * AFreecellModel.startGame with an unshuffled deck, including the deck check.
+   */
+  @Benchmark
+  public SimpleFreecellModel startGame() {
+    starter.startGame(deck, 8, 4, false);
+    return starter;
+  }
+
+  /**
+   * AFreecellModel.fork of the opening position of deal 1, then one move in the fork, which
+   * copies the two piles it changes.
+   */
+  @Benchmark
+  public AFreecellModel forkAndMove() {
+    AFreecellModel fork = dealt.fork();
+    Moves.apply(fork, firstMove);
+    return fork;
+  }
+
+  /**
+   * SaveGameCodec.encode of a game of deal 1 with 60 moves, two of them undone.
+   */
+  @Benchmark
+  public ByteBuffer saveGame() {
+    ByteBuffer out = saved.duplicate();
+    out.clear();
+    SaveGameCodec.encode(played, 1, out);
+    return out;
+  }
+
+  /**
+   * SaveGameCodec.decode of the game saved by saveGame.
+   */
+  @Benchmark
+  public AFreecellModel loadGame() {
+    return SaveGameCodec.decode(saved.duplicate());
+  }
+
+  /**
+   * MultiMoveFreecellModel.getLegalMoves on the opening position of deal 1.
+   */
+  @Benchmark
+  public int legalMoves() {
+    return dealt.getLegalMoves(moves);
+  }
+}
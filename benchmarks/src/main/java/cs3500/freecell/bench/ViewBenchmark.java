@@ -0,0 +1,80 @@
+package cs3500.freecell.bench;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cs3500.freecell.model.AFreecellModel;
+import cs3500.freecell.model.SimpleFreecellModel;
+import cs3500.freecell.view.FreecellTextParser;
+import cs3500.freecell.view.FreecellTextView;
+
+/**
+ * Benchmarks of rendering a board as text and reading it back.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewBenchmark {
+  private FreecellTextView view;
+  private FreecellTextView sinkView;
+  private StringBuilder sink;
+  private String board;
+  private SimpleFreecellModel parsed;
+
+  /**
+   * Deal game 1 and build a view of it.
+   */
+  @Setup
+  public void setup() {
+    SimpleFreecellModel model = new SimpleFreecellModel();
+    model.startDeal(1, 8, 4);
+    view = new FreecellTextView(model);
+    sink = new StringBuilder();
+    sinkView = new FreecellTextView(model, sink);
+    board = view.toString();
+    parsed = new SimpleFreecellModel();
+  }
+
+  /**
+   * FreecellTextView.toString of a freshly dealt board.
+   */
+  @Benchmark
+  public String render() {
+    return view.toString();
+  }
+
+  /**
+   * FreecellTextView.renderBoard of a freshly dealt board into a reused StringBuilder.
+   */
+  @Benchmark
+  public StringBuilder renderBoard() throws IOException {
+    sink.setLength(0);
+    sinkView.renderBoard();
+    return sink;
+  }
+
+  /**
+   * FreecellTextParser.next of a freshly dealt board into a reused game, including the check
+   * that every card is there once.
+   */
+  @Benchmark
+  public AFreecellModel parseBoard() {
+    new FreecellTextParser(CharBuffer.wrap(board)).next(parsed);
+    return parsed;
+  }
+}
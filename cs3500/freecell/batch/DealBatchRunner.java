@@ -0,0 +1,229 @@
+package cs3500.freecell.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cs3500.freecell.cards.ICard;
+import cs3500.freecell.model.DealGenerator;
+import cs3500.freecell.model.FreecellModel;
+import cs3500.freecell.model.FreecellModelCreator;
+import cs3500.freecell.solver.FreecellSolver;
+import cs3500.freecell.solver.SolverResult;
+
+/**
+ * Runs a range of seeded deals through startGame and the solver and appends one fixed-size
+ * record per deal to a file, in seed order. The file doubles as the checkpoint: a run that is
+ * interrupted resumes after the last complete record. Deals are analyzed in chunks by a pool of
+ * workers, with a bounded number of chunks in flight, so memory does not grow with the range.
+ * <pre>
+ * Record (RECORD_SIZE bytes, big-endian):
+ * long  seed, the Microsoft deal number (see DealGenerator)
+ * byte  status (SolverResult.Status ordinal)
+ * byte  unused
+ * short number of moves in the solution, saturated at 65535
+ * int   number of positions explored, saturated at Integer.MAX_VALUE
+ * </pre>
+ */
+public class DealBatchRunner {
+  /**
+   * Size in bytes of one result record.
+   */
+  public static final int RECORD_SIZE = 16;
+
+  private static final int CHUNK = 64;
+
+  private final Path output;
+  private final FreecellModelCreator.GameType type;
+  private final int numCascades;
+  private final int numOpens;
+  private final FreecellSolver solver;
+  private final int threads;
+  private final Appendable log;
+
+  /**
+   * Constructor.
+   *
+   * @param output      the result file, created if missing and resumed if not.
+   * @param type        the type of game to deal.
+   * @param numCascades the number of cascade piles.
+   * @param numOpens    the number of open piles.
+   * @param solver      the solver used to analyze each deal.
+   * @param threads     the number of worker threads.
+   * @param log         where progress and throughput are reported.
+   */
+  public DealBatchRunner(Path output, FreecellModelCreator.GameType type, int numCascades,
+                         int numOpens, FreecellSolver solver, int threads, Appendable log) {
+    if (output == null || type == null || solver == null || log == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("Error: Invalid Thread Count");
+    }
+    this.output = output;
+    this.type = type;
+    this.numCascades = numCascades;
+    this.numOpens = numOpens;
+    this.solver = solver;
+    this.threads = threads;
+    this.log = log;
+  }
+
+  /**
+   * Analyze every deal with a seed in [firstSeed, lastSeed]. If the output file already holds
+   * records, the run continues after the last complete one.
+   *
+   * @param firstSeed the first seed of the range.
+   * @param lastSeed  the last seed of the range, inclusive.
+   * @return the number of deals analyzed by this call.
+   * @throws IOException if the output file cannot be read or written.
+   */
+  public long run(long firstSeed, long lastSeed) throws IOException {
+    if (lastSeed < firstSeed) {
+      throw new IllegalArgumentException("Error: Empty Seed Range");
+    }
+    if (firstSeed < 1 || lastSeed > DealGenerator.MAX_DEAL) {
+      throw new IllegalArgumentException("Error: Seed out of Bounds [1, "
+              + DealGenerator.MAX_DEAL + "]");
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long next = resume(out, firstSeed);
+      if (next > firstSeed) {
+        report("Resuming at seed " + next + "\n");
+      }
+
+      long start = System.nanoTime();
+      long done = 0;
+      long lastReport = start;
+      Deque<Future<ByteBuffer>> inFlight = new ArrayDeque<Future<ByteBuffer>>();
+      long seed = next;
+
+      while (seed <= lastSeed || !inFlight.isEmpty()) {
+        // keep a bounded number of chunks in flight
+        while (seed <= lastSeed && inFlight.size() < threads * 2) {
+          long from = seed;
+          long to = Math.min(lastSeed, seed + CHUNK - 1);
+          inFlight.add(pool.submit(() -> analyze(from, to)));
+          seed = to + 1;
+        }
+
+        ByteBuffer records = await(inFlight.poll());
+        done += records.remaining() / RECORD_SIZE;
+        while (records.hasRemaining()) {
+          out.write(records);
+        }
+        out.force(false);
+
+        long now = System.nanoTime();
+        if (now - lastReport >= 5_000_000_000L || (seed > lastSeed && inFlight.isEmpty())) {
+          lastReport = now;
+          report(String.format("%d deals, %.1f deals/sec%n", done,
+                  done / Math.max(1e-9, (now - start) / 1e9)));
+        }
+      }
+      return done;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Drop any partial trailing record and find the seed to continue from.
+   *
+   * @return the seed after the last complete record, or firstSeed if there is none.
+   */
+  private long resume(FileChannel out, long firstSeed) throws IOException {
+    long complete = out.size() / RECORD_SIZE;
+    out.truncate(complete * RECORD_SIZE);
+    out.position(complete * RECORD_SIZE);
+    if (complete == 0) {
+      return firstSeed;
+    }
+    ByteBuffer last = ByteBuffer.allocate(Long.BYTES);
+    out.read(last, (complete - 1) * RECORD_SIZE);
+    last.flip();
+    return Math.max(firstSeed, last.getLong() + 1);
+  }
+
+  /**
+   * Deal and solve the deals with a seed in [from, to].
+   *
+   * @return the records of those deals, ready to be written.
+   */
+  private ByteBuffer analyze(long from, long to) {
+    FreecellModel<ICard> model = FreecellModelCreator.create(type);
+    ICard[] cards = new ICard[52];
+    List<ICard> deck = Arrays.asList(cards);
+    ByteBuffer records = ByteBuffer.allocate((int) (to - from + 1) * RECORD_SIZE);
+    for (long seed = from; seed <= to; seed++) {
+      DealGenerator.deal(seed, cards);
+      model.startGame(deck, numCascades, numOpens, false);
+      SolverResult result = solver.solve(model);
+      records.putLong(seed);
+      records.put((byte) result.getStatus().ordinal());
+      records.put((byte) 0);
+      records.putShort((short) Math.min(65535, result.getMoves().size()));
+      records.putInt((int) Math.min(Integer.MAX_VALUE, result.getNodes()));
+    }
+    records.flip();
+    return records;
+  }
+
+  private ByteBuffer await(Future<ByteBuffer> chunk) throws IOException {
+    try {
+      return chunk.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("IOException: Batch Interrupted");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Error: Deal Analysis Failed", e.getCause());
+    }
+  }
+
+  private void report(String msg) {
+    try {
+      log.append(msg);
+    } catch (IOException e) {
+      throw new IllegalStateException("Error: Unable to report progress");
+    }
+  }
+
+  /**
+   * Runs a batch.
+   * Usage: output firstSeed lastSeed [singlemove|multimove] [threads] [maxNodes]
+   *
+   * @param args args.
+   * @throws IOException if the output file cannot be read or written.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 3) {
+      System.err.println("Usage: output firstSeed lastSeed [singlemove|multimove] [threads] "
+              + "[maxNodes]");
+      return;
+    }
+    FreecellModelCreator.GameType type = args.length > 3
+            ? FreecellModelCreator.GameType.valueOf(args[3].toUpperCase())
+            : FreecellModelCreator.GameType.SINGLEMOVE;
+    int threads = args.length > 4 ? Integer.parseInt(args[4])
+            : Runtime.getRuntime().availableProcessors();
+    long maxNodes = args.length > 5 ? Long.parseLong(args[5]) : 200_000;
+
+    DealBatchRunner runner = new DealBatchRunner(Paths.get(args[0]), type, 8, 4,
+            new FreecellSolver(maxNodes, 10_000), threads, System.err);
+    runner.run(Long.parseLong(args[1]), Long.parseLong(args[2]));
+  }
+}
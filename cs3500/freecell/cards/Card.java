@@ -2,22 +2,32 @@ package cs3500.freecell.cards;
 
 /**
  * This class represents a card in a standard 52 card deck. Each card has a rank and suit.
+ * There is exactly one instance of each of the 52 cards (see of and fromIndex), so cards can be
+ * compared by identity and all of their properties are plain field reads.
  */
-public class Card implements ICard {
-  private String rank;
-  private Suit suit;
-  private boolean isBlack;
+public final class Card implements ICard {
+  // every card, in standard deck order (see indexOf)
+  private static final Card[] DECK = new Card[52];
+
+  static {
+    for (int i = 0; i < 52; i++) {
+      DECK[i] = new Card(i / 4 + 1, Suit.values()[i % 4]);
+    }
+  }
+
+  private final String rank;
+  private final int rankNum;
+  private final Suit suit;
+  private final boolean isBlack;
+  private final int index;
+  private final String str;
 
   /**
    * Constructor. Initializes rank and suit to given values.
    * @param rank The rank to be given to this card.
    * @param suit The suit to be given to this card.
    */
-  public Card(int rank, Suit suit) {
-    if (rank < 1 || rank > 13) {
-      throw new IllegalArgumentException("Error: Rank out of Bounds [1, 13]");
-    }
-
+  private Card(int rank, Suit suit) {
     switch (rank) {
       case 1:
         this.rank = "A";
@@ -36,6 +46,7 @@ public class Card implements ICard {
         break;
     }
 
+    this.rankNum = rank;
     this.suit = suit;
     switch (this.suit) {
       case CLUB:
@@ -46,6 +57,145 @@ public class Card implements ICard {
         this.isBlack = false;
         break;
     }
+    this.index = (rank - 1) * 4 + suit.ordinal();
+    this.str = this.rank + suit;
+  }
+
+  /**
+   * Get the card with the given rank and suit.
+   * @param rank The rank of the card, in [1, 13].
+   * @param suit The suit of the card.
+   * @return the card.
+   * @throws IllegalArgumentException if the rank is out of bounds or the suit is null.
+   */
+  public static Card of(int rank, Suit suit) {
+    if (rank < 1 || rank > 13) {
+      throw new IllegalArgumentException("Error: Rank out of Bounds [1, 13]");
+    }
+    if (suit == null) {
+      throw new IllegalArgumentException("Error: Null Suit");
+    }
+    return DECK[(rank - 1) * 4 + suit.ordinal()];
+  }
+
+  /**
+   * Get the index of the given card in the standard deck order: rank-major, then CLUB, DIAMOND,
+   * HEART, SPADE. A♣ = 0, A♦ = 1, ... K♠ = 51.
+   *
+   * @param card any ICard.
+   * @return the index of the card, in [0, 51].
+   * @throws IllegalArgumentException if the card has a rank outside [1, 13] or no standard suit.
+   */
+  public static int indexOf(ICard card) {
+    if (card instanceof Card) {
+      return ((Card) card).index;
+    }
+    int rankNum = card.getRankNum();
+    if (rankNum < 1 || rankNum > 13) {
+      throw new IllegalArgumentException("Error: Rank out of Bounds [1, 13]");
+    }
+    String suitStr = card.getSuit();
+    for (Suit s : Suit.values()) {
+      if (s.toString().equals(suitStr)) {
+        return (rankNum - 1) * 4 + s.ordinal();
+      }
+    }
+    throw new IllegalArgumentException("Error: Invalid Suit");
+  }
+
+  /**
+   * Get the card at the given index in the standard deck order (see indexOf).
+   *
+   * @param index the index of the card, in [0, 51].
+   * @return the card at that index.
+   * @throws IllegalArgumentException if the index is out of bounds.
+   */
+  public static Card fromIndex(int index) {
+    if (index < 0 || index > 51) {
+      throw new IllegalArgumentException("Error: Card Index out of Bounds [0, 51]");
+    }
+    return DECK[index];
+  }
+
+  /**
+   * Get the card written as text: a rank (A, 2-10, J, Q or K, with T also accepted for 10)
+   * followed by a suit, either its symbol (see Suit) or its initial (C, D, H or S). Letters may
+   * be in either case, e.g. "10♦", "QS" or "th".
+   *
+   * @param text the card as text.
+   * @return the card.
+   * @throws IllegalArgumentException if the text is not a card.
+   */
+  public static Card parse(CharSequence text) {
+    int length = text.length();
+    if (length < 2 || length > 3) {
+      throw new IllegalArgumentException("Error: Invalid Card");
+    }
+
+    int suit;
+    switch (text.charAt(length - 1)) {
+      case '♣': case 'c': case 'C':
+        suit = 0;
+        break;
+      case '♦': case 'd': case 'D':
+        suit = 1;
+        break;
+      case '♥': case 'h': case 'H':
+        suit = 2;
+        break;
+      case '♠': case 's': case 'S':
+        suit = 3;
+        break;
+      default:
+        throw new IllegalArgumentException("Error: Invalid Suit");
+    }
+
+    char c = text.charAt(0);
+    int rank;
+    if (length == 3) {
+      rank = c == '1' && text.charAt(1) == '0' ? 10 : -1;
+    } else if (c >= '2' && c <= '9') {
+      rank = c - '0';
+    } else {
+      switch (Character.toUpperCase(c)) {
+        case 'A':
+          rank = 1;
+          break;
+        case 'T':
+          rank = 10;
+          break;
+        case 'J':
+          rank = 11;
+          break;
+        case 'Q':
+          rank = 12;
+          break;
+        case 'K':
+          rank = 13;
+          break;
+        default:
+          rank = -1;
+          break;
+      }
+    }
+    if (rank == -1) {
+      throw new IllegalArgumentException("Error: Invalid Rank");
+    }
+    return DECK[(rank - 1) * 4 + suit];
+  }
+
+  /**
+   * Get the canonical instance of the given card.
+   *
+   * @param card any ICard.
+   * @return the Card with the same rank and suit.
+   * @throws IllegalArgumentException if the card has an invalid rank or suit.
+   */
+  public static Card canonical(ICard card) {
+    if (card instanceof Card) {
+      return (Card) card;
+    }
+    return DECK[indexOf(card)];
   }
 
   @Override
@@ -58,6 +208,14 @@ public class Card implements ICard {
     return suit.toString();
   }
 
+  /**
+   * Getter for suit.
+   * @return suit The suit of this card.
+   */
+  public Suit getSuitType() {
+    return suit;
+  }
+
   @Override
   public boolean getIsBlack() {
     return isBlack;
@@ -65,40 +223,29 @@ public class Card implements ICard {
 
   @Override
   public int getRankNum() {
-    switch (rank) {
-      case "A":
-        return 1;
-      case "J":
-        return 11;
-      case "Q":
-        return 12;
-      case "K":
-        return 13;
-      default:
-        return Integer.parseInt(rank);
-    }
+    return rankNum;
+  }
+
+  /**
+   * Getter for index.
+   * @return index The index of this card in the standard deck order (see indexOf).
+   */
+  public int getIndex() {
+    return index;
   }
 
   @Override
   public String toString() {
-    return rank + suit;
+    return str;
   }
 
   @Override
   public boolean equals(Object obj) {
-    if (obj == this) {
-      return true;
-    }
-    if (!(obj instanceof Card)) {
-      return false;
-    }
-
-    Card other = (Card)obj;
-    return other.getRank().equals(rank) && other.getSuit().equals(suit.toString());
+    return obj == this;
   }
 
   @Override
   public int hashCode() {
-    return getRankNum() + suit.toString().hashCode();
+    return index;
   }
 }
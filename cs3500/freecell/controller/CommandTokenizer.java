@@ -0,0 +1,255 @@
+package cs3500.freecell.controller;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import cs3500.freecell.model.PileType;
+
+/**
+ * Splits player input into whitespace separated tokens. Input is read from the Readable in large
+ * chunks, and the current token is kept in a reusable char array, so reading and parsing tokens
+ * allocates nothing once the longest token has been seen.
+ */
+public final class CommandTokenizer implements CharSequence {
+  private static final int DEFAULT_CHUNK = 1024;
+
+  private final Readable rd;
+  private final CharBuffer chunk;
+  private boolean endOfInput = false;
+
+  private char[] token = new char[16];
+  private int length = 0;
+
+  /**
+   * Constructor for CommandTokenizer.
+   *
+   * @param rd The input to split.
+   */
+  public CommandTokenizer(Readable rd) {
+    this(rd, DEFAULT_CHUNK);
+  }
+
+  /**
+   * Constructor for CommandTokenizer.
+   *
+   * @param rd        The input to split.
+   * @param chunkSize The number of chars to ask the Readable for at a time.
+   * @throws IllegalArgumentException if rd is null or the chunk size is not positive.
+   */
+  public CommandTokenizer(Readable rd, int chunkSize) {
+    if (rd == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Error: Invalid Chunk Size");
+    }
+    this.rd = rd;
+    this.chunk = CharBuffer.allocate(chunkSize);
+    // nothing has been read yet
+    this.chunk.flip();
+  }
+
+  /**
+   * Advance to the next token. A token ends at whitespace or at the end of the input.
+   *
+   * @return whether there was another token, false at the end of the input.
+   * @throws IllegalStateException if reading from the Readable fails.
+   */
+  public boolean next() {
+    length = 0;
+    while (fill()) {
+      char c = chunk.get();
+      if (!Character.isWhitespace(c)) {
+        if (length == token.length) {
+          char[] grown = new char[length * 2];
+          System.arraycopy(token, 0, grown, 0, length);
+          token = grown;
+        }
+        token[length++] = c;
+      } else if (length > 0) {
+        return true;
+      }
+    }
+    return length > 0;
+  }
+
+  /**
+   * Make sure there is unread input in chunk.
+   *
+   * @return false if the input has ended.
+   */
+  private boolean fill() {
+    while (!chunk.hasRemaining()) {
+      if (endOfInput) {
+        return false;
+      }
+      chunk.clear();
+      int n;
+      try {
+        n = rd.read(chunk);
+      } catch (IOException e) {
+        throw new IllegalStateException("Error: Unable to read input");
+      }
+      chunk.flip();
+      endOfInput = n < 0;
+    }
+    return true;
+  }
+
+  /**
+   * Getter for the length of the current token.
+   * @return length The number of chars in the current token, 0 if there is none.
+   */
+  @Override
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Get a char of the current token.
+   *
+   * @param index the index of the char, starting at 0.
+   * @return the char.
+   * @throws IndexOutOfBoundsException if the index is not in the current token.
+   */
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("Error: Index out of Token");
+    }
+    return token[index];
+  }
+
+  /**
+   * @return whether the current token asks to quit the game, q or Q.
+   */
+  public boolean isQuit() {
+    return isQuit(this);
+  }
+
+  /**
+   * Get the pile type named by the first char of the current token: c, f or o in either case.
+   *
+   * @return the correlating pile type.
+   * @throws IllegalArgumentException if the first char names no pile type.
+   */
+  public PileType parsePileType() {
+    return parsePileType(this);
+  }
+
+  /**
+   * Parse the current token, from the given index to its end, as a decimal integer. Accepts the
+   * same text as Integer.parseInt.
+   *
+   * @param from the index of the first char of the integer.
+   * @return the integer.
+   * @throws NumberFormatException if those chars are not an integer in the range of an int.
+   */
+  public int parseInt(int from) {
+    return parseInt(this, from);
+  }
+
+  /**
+   * @param token a token.
+   * @return whether the token asks to quit the game, q or Q.
+   */
+  public static boolean isQuit(CharSequence token) {
+    return token.length() == 1 && (token.charAt(0) == 'q' || token.charAt(0) == 'Q');
+  }
+
+  /**
+   * Get the pile type named by the first char of a token: c, f or o in either case.
+   *
+   * @param token a token.
+   * @return the correlating pile type.
+   * @throws IllegalArgumentException if the first char names no pile type.
+   */
+  public static PileType parsePileType(CharSequence token) {
+    switch (token.length() == 0 ? '\0' : token.charAt(0)) {
+      case 'c':
+      case 'C':
+        return PileType.CASCADE;
+      case 'f':
+      case 'F':
+        return PileType.FOUNDATION;
+      case 'o':
+      case 'O':
+        return PileType.OPEN;
+      default:
+        throw new IllegalArgumentException("Error: No Correlating PileType");
+    }
+  }
+
+  /**
+   * Parse a token, from the given index to its end, as a decimal integer. Accepts the same text
+   * as Integer.parseInt.
+   *
+   * @param token a token.
+   * @param from  the index of the first char of the integer.
+   * @return the integer.
+   * @throws NumberFormatException if those chars are not an integer in the range of an int.
+   */
+  public static int parseInt(CharSequence token, int from) {
+    int length = token.length();
+    int i = from;
+    boolean negative = false;
+    if (i < length && (token.charAt(i) == '-' || token.charAt(i) == '+')) {
+      negative = token.charAt(i) == '-';
+      i++;
+    }
+    if (i >= length) {
+      throw new NumberFormatException("Error: Not an Integer");
+    }
+
+    // accumulate negatively, which also covers Integer.MIN_VALUE
+    long value = 0;
+    for (; i < length; i++) {
+      int digit = Character.digit(token.charAt(i), 10);
+      if (digit < 0) {
+        throw new NumberFormatException("Error: Not an Integer");
+      }
+      value = value * 10 - digit;
+      if (value < Integer.MIN_VALUE) {
+        throw new NumberFormatException("Error: Integer out of Range");
+      }
+    }
+    if (!negative) {
+      value = -value;
+      if (value > Integer.MAX_VALUE) {
+        throw new NumberFormatException("Error: Integer out of Range");
+      }
+    }
+    return (int) value;
+  }
+
+  /**
+   * Test whether the current token is the given word.
+   *
+   * @param word the word.
+   * @return whether the current token has exactly the chars of word.
+   */
+  public boolean is(String word) {
+    if (word.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (word.charAt(i) != token[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > length || start > end) {
+      throw new IndexOutOfBoundsException("Error: Index out of Token");
+    }
+    return new String(token, start, end - start);
+  }
+
+  @Override
+  public String toString() {
+    return new String(token, 0, length);
+  }
+}
@@ -0,0 +1,174 @@
+package cs3500.freecell.controller;
+
+import cs3500.freecell.cards.ICard;
+import cs3500.freecell.model.FreecellModel;
+import cs3500.freecell.model.MoveResult;
+import cs3500.freecell.model.PileType;
+import cs3500.freecell.view.FreecellView;
+
+/**
+ * Turns the tokens a player types into moves, one token at a time. A move is three tokens: the
+ * source pile, the card index and the destination pile, with indices starting at 1 (see
+ * MoveState). Mistakes are reported through the view and the player tries again. Since the
+ * interpreter is fed tokens rather than reading them, it works both for controllers that block
+ * on their input and for ones driven by input as it arrives.
+ */
+public final class MoveInterpreter {
+
+  /**
+   * What a token completed.
+   * INCOMPLETE More tokens are needed for a move.
+   * MOVED      A move was made.
+   * QUIT       The player quit the game.
+   */
+  public enum Status {
+    INCOMPLETE, MOVED, QUIT;
+  }
+
+  private final FreecellModel<ICard> model;
+  private final FreecellView view;
+
+  private MoveState state = MoveState.GET_SRC;
+
+  // will be set based on user input.
+  private PileType src = null;
+  private PileType dest = null;
+  private int sPileIndex = -1;
+  private int dPileIndex = -1;
+  private int cardIndex = -1;
+
+  /**
+   * Constructor for MoveInterpreter.
+   *
+   * @param model The game of freecell.
+   * @param view  Where messages to the player are rendered.
+   */
+  public MoveInterpreter(FreecellModel<ICard> model, FreecellView view) {
+    if (model == null || view == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    this.model = model;
+    this.view = view;
+  }
+
+  /**
+   * Handle the next token typed by the player.
+   *
+   * @param token the token, which is not kept.
+   * @return whether the token completed a move, quit the game or neither.
+   * @throws IllegalStateException if rendering a message fails.
+   */
+  public Status accept(CharSequence token) {
+    // if player wants to quit, quit.
+    if (CommandTokenizer.isQuit(token)) {
+      renderMessage("Game quit prematurely.");
+      reset();
+      return Status.QUIT;
+    }
+    switch (state) {
+      case GET_SRC:
+        try {
+          // get source pile information
+          src = CommandTokenizer.parsePileType(token);
+          sPileIndex = CommandTokenizer.parseInt(token, 1);
+
+          // move onto next moveState
+          state = MoveState.GET_CARD;
+        } catch (Exception e) {
+          if (src == null) {
+            renderMessage("Invalid PileType for source pile. Try again.\n");
+          } else {
+            renderMessage("Index of source pile must be an integer. Try again.\n");
+          }
+          src = null;
+          sPileIndex = -1;
+        }
+        break;
+      case GET_CARD:
+        try {
+          cardIndex = CommandTokenizer.parseInt(token, 0);
+          // move onto next moveState
+          state = MoveState.GET_DEST;
+        } catch (Exception e) {
+          renderMessage("Card index must be an integer. Try again.\n");
+          cardIndex = -1;
+        }
+        break;
+      case GET_DEST:
+        try {
+          // get dest pile information
+          dest = CommandTokenizer.parsePileType(token);
+          dPileIndex = CommandTokenizer.parseInt(token, 1);
+
+          // move onto next moveState
+          state = MoveState.GET_SRC;
+        } catch (Exception e) {
+          if (src == null) {
+            renderMessage("Invalid PileType for destination pile. Try again.\n");
+          } else {
+            renderMessage("Index of destination pile must be an integer. Try again.\n");
+          }
+          dest = null;
+          dPileIndex = -1;
+        }
+        break;
+      default:
+        throw new IllegalStateException("Error: Invalid Move State");
+    }
+
+    // if the parameters for move are defined, attempt to perform move
+    if (src != null && dest != null) {
+      boolean moved = applyMove(model, src, sPileIndex, cardIndex, dest, dPileIndex);
+      if (!moved) {
+        // invalid move
+        renderMessage("Invalid move. Try again.\n");
+      }
+      reset();
+      return moved ? Status.MOVED : Status.INCOMPLETE;
+    }
+    return Status.INCOMPLETE;
+  }
+
+  /**
+   * Forget any partly typed move.
+   */
+  public void reset() {
+    src = null;
+    cardIndex = -1;
+    sPileIndex = -1;
+    dPileIndex = -1;
+    dest = null;
+    state = MoveState.GET_SRC;
+  }
+
+  /**
+   * Make a move given as the player types it, with pile and card indices starting at 1.
+   *
+   * @param model      The game of freecell.
+   * @param src        Source pile type.
+   * @param sPileIndex Source pile index.
+   * @param cardIndex  Source card index.
+   * @param dest       Destination pile type.
+   * @param dPileIndex Destination pile index
+   * @return whether move was successful or not.
+   */
+  static boolean applyMove(FreecellModel<ICard> model, PileType src, int sPileIndex,
+                           int cardIndex, PileType dest, int dPileIndex) {
+    return model.tryMove(src, sPileIndex - 1, cardIndex - 1,
+            dest, dPileIndex - 1) == MoveResult.OK;
+  }
+
+  /**
+   * Try to render the given message in view.
+   *
+   * @param msg The desired message.
+   */
+  private void renderMessage(String msg) {
+    // try to render message
+    try {
+      view.renderMessage(msg);
+    } catch (Exception e) {
+      throw new IllegalStateException("Error: Unable to render message");
+    }
+  }
+}
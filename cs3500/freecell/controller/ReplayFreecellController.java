@@ -0,0 +1,223 @@
+package cs3500.freecell.controller;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import cs3500.freecell.cards.Card;
+import cs3500.freecell.cards.ICard;
+import cs3500.freecell.model.DealGenerator;
+import cs3500.freecell.model.FreecellModel;
+import cs3500.freecell.model.FreecellModelCreator;
+import cs3500.freecell.model.PileType;
+
+/**
+ * Non-interactive controller that replays recorded games against a model and reports whether
+ * each one is valid. Nothing is rendered between moves. Moves are typed exactly as at the prompt
+ * of SimpleFreecellController, with indices starting at 1. A recording holds any number of
+ * games, separated by whitespace:
+ * <pre>
+ * deck cascades opens c1 c2 ... c52  (start a game with the given deck, see Card.parse)
+ * deal number cascades opens          (start a game with a numbered deal, see DealGenerator)
+ * C1 7 O1                             (a move: source pile, card index, destination pile)
+ * ...
+ * end                                 (end the game)
+ * </pre>
+ * One line is reported per game: "Game n: won in m moves", "Game n: unfinished after m moves",
+ * or "Game n: invalid, ..." with the reason, followed by a summary line.
+ */
+public class ReplayFreecellController {
+
+  private final FreecellModel<ICard> model;
+  private final CommandTokenizer tokens;
+  private final Appendable ap;
+
+  // reused for every deck, deckView is a fixed-size list backed by deckBuffer
+  private final ICard[] deckBuffer = new ICard[52];
+  private final List<ICard> deckView = Arrays.asList(deckBuffer);
+
+  // number of moves made in the current game
+  private int moves;
+
+  /**
+   * Constructor for ReplayFreecellController.
+   *
+   * @param model The game of freecell to replay on.
+   * @param rd    The recorded games.
+   * @param ap    Where the results are reported.
+   */
+  public ReplayFreecellController(FreecellModel<ICard> model, Readable rd, Appendable ap) {
+    if (model == null || rd == null || ap == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    this.model = model;
+    this.tokens = new CommandTokenizer(rd);
+    this.ap = ap;
+  }
+
+  /**
+   * Replay every game in the recording and report the results.
+   *
+   * @return the number of invalid games.
+   * @throws IllegalStateException if reading the recording or writing the results fails.
+   */
+  public int replay() {
+    int games = 0;
+    int won = 0;
+    int invalid = 0;
+
+    while (tokens.next()) {
+      games++;
+      report("Game ").report(games).report(": ");
+      String error = replayGame();
+      if (error != null) {
+        invalid++;
+        report("invalid, ").report(error);
+        // skip the rest of the game
+        while (!tokens.is("end") && tokens.next()) {
+          continue;
+        }
+      } else if (model.isGameOver()) {
+        won++;
+        report("won in ").report(moves).report(" moves");
+      } else {
+        report("unfinished after ").report(moves).report(" moves");
+      }
+      report("\n");
+    }
+
+    report(games).report(" games: ").report(won).report(" won, ")
+            .report(games - won - invalid).report(" unfinished, ").report(invalid)
+            .report(" invalid\n");
+    return invalid;
+  }
+
+  /**
+   * Replay one game, starting at its first token.
+   *
+   * @return why the game is invalid, or null if it is valid.
+   */
+  private String replayGame() {
+    moves = 0;
+    String error = startGame();
+    if (error != null) {
+      return error;
+    }
+
+    while (tokens.next()) {
+      if (tokens.is("end")) {
+        return null;
+      }
+
+      PileType src;
+      int sPileIndex;
+      int cardIndex;
+      PileType dest;
+      int dPileIndex;
+      try {
+        src = tokens.parsePileType();
+        sPileIndex = tokens.parseInt(1);
+        cardIndex = nextInt();
+        if (!tokens.next()) {
+          return "missing end";
+        }
+        dest = tokens.parsePileType();
+        dPileIndex = tokens.parseInt(1);
+      } catch (IllegalArgumentException e) {
+        return "unexpected '" + tokens + "' in move " + (moves + 1);
+      }
+
+      if (!MoveInterpreter.applyMove(model, src, sPileIndex, cardIndex,
+              dest, dPileIndex)) {
+        return "illegal move " + (moves + 1) + ": " + src.name().charAt(0) + sPileIndex + " "
+                + cardIndex + " " + dest.name().charAt(0) + dPileIndex;
+      }
+      moves++;
+    }
+    return "missing end";
+  }
+
+  /**
+   * Start the game described by the current token and the ones after it.
+   *
+   * @return why the game could not be started, or null if it was.
+   */
+  private String startGame() {
+    boolean numbered = tokens.is("deal");
+    if (!numbered && !tokens.is("deck")) {
+      return "expected deck or deal but found '" + tokens + "'";
+    }
+
+    try {
+      long dealNumber = numbered ? nextInt() : 0;
+      int numCascades = nextInt();
+      int numOpens = nextInt();
+      if (numbered) {
+        DealGenerator.deal(dealNumber, deckBuffer);
+      } else {
+        for (int i = 0; i < 52; i++) {
+          if (!tokens.next()) {
+            return "missing end";
+          }
+          try {
+            deckBuffer[i] = Card.parse(tokens);
+          } catch (IllegalArgumentException e) {
+            return "unexpected '" + tokens + "' in deck";
+          }
+        }
+      }
+      model.startGame(deckView, numCascades, numOpens, false);
+      return null;
+    } catch (NumberFormatException e) {
+      return "unexpected '" + tokens + "' in game setup";
+    } catch (IllegalArgumentException e) {
+      return "could not start game (" + e.getMessage() + ")";
+    }
+  }
+
+  /**
+   * Advance to the next token and parse it as an integer.
+   *
+   * @throws NumberFormatException if there is no next token or it is not an integer.
+   */
+  private int nextInt() {
+    if (!tokens.next()) {
+      throw new NumberFormatException("Error: Not an Integer");
+    }
+    return tokens.parseInt(0);
+  }
+
+  private ReplayFreecellController report(Object msg) {
+    try {
+      ap.append(String.valueOf(msg));
+    } catch (IOException e) {
+      throw new IllegalStateException("Error: Unable to report results");
+    }
+    return this;
+  }
+
+  /**
+   * Replays a file of recorded games, read as UTF-8, and prints the results.
+   * Usage: file [singlemove|multimove]
+   *
+   * @param args args.
+   * @throws IOException if the file cannot be read.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: file [singlemove|multimove]");
+      return;
+    }
+    FreecellModelCreator.GameType type = args.length > 1
+            ? FreecellModelCreator.GameType.valueOf(args[1].toUpperCase())
+            : FreecellModelCreator.GameType.SINGLEMOVE;
+
+    try (Reader in = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+      new ReplayFreecellController(FreecellModelCreator.create(type), in, System.out).replay();
+    }
+  }
+}
@@ -1,99 +1,444 @@
 package cs3500.freecell.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import cs3500.freecell.cards.Card;
 import cs3500.freecell.cards.ICard;
-import cs3500.freecell.cards.Suit;
 
 /**
  * Abstract class for freecell model.
  * Implements all methods defined in FreecellModel except for move.
+ *
+ * <p>Cards are stored as their index in the standard deck order (see Card.indexOf), one byte
+ * each, and the getters return the canonical card for an index. All cascade piles share one
+ * buffer; an open pile is a single card and a foundation pile is a suit and a count.
  */
 public abstract class AFreecellModel implements FreecellModel<ICard> {
+  /**
+   * The most piles of one type a game can have. The journal, PackedState and Moves store pile
+   * numbers in one byte.
+   */
+  public static final int MAX_PILES = 255;
+
+  // size of the cascade buffer: all 52 cards, with as much room again for the piles to grow
+  private static final int CASCADE_CAPACITY = 104;
+  private static final byte EMPTY = -1;
+  private static final int[] NO_MOVES = new int[0];
+  private static final PileType[] TYPES = PileType.values();
+
   protected int numCascadePiles;
   protected int numOpenPiles;
 
-  protected List<ICard>[] foundationPiles;
-  protected List<ICard>[] cascadePiles;
-  protected List<ICard>[] openPiles;
+  /*
+   * Cascade pile i holds cascades[cascadeStart[i]] to cascades[cascadeStart[i] + cascadeSize[i]
+   * - 1], bottom card first. The piles lie in order and each can grow up to the start of the
+   * next, after which the piles are spread out again (see makeRoom).
+   */
+  private byte[] cascades = new byte[0];
+  private byte[] cascadeStart = new byte[0];
+  private byte[] cascadeSize = new byte[0];
+  // the card in each open pile, or EMPTY
+  private byte[] opens = new byte[0];
+  // the number of cards in each foundation pile, and the suit of those cards
+  private byte[] foundationSize = new byte[0];
+  private byte[] foundationSuit = new byte[0];
 
   protected boolean hasStarted;
 
+  /*
+   * Applied moves, one int per move (see record). The first journalSize entries have been
+   * applied; entries up to journalLimit were undone and can be redone. The journal may be shared
+   * with forks of this game (see fork), and is copied before it is first changed.
+   */
+  private int[] journal = NO_MOVES;
+  private int journalSize = 0;
+  private int journalLimit = 0;
+  private boolean journalShared = false;
+  // told of every change to the journal, or null
+  private JournalListener listener = null;
+
+  // set in the journal entries of moves made by auto-play, which are undone with the move before
+  static final int AUTO = 1 << 26;
+
+  // whether safe cards are sent to the foundations after each move (see setAutoPlay)
+  private boolean autoPlay = false;
+  // the pile holding each card while auto-play is on: PileType ordinal in bits 0-1, pile number
+  // above
+  private int[] cardPile = null;
+  // kept up to date by moveCards, so they need not be counted on every move
+  private int emptyOpenPiles = 0;
+  private int emptyCascadePiles = 0;
+  // the auto moves that followed the last move or redo, see Moves
+  private int[] autoMoves = NO_MOVES;
+  private int autoMoveCount = 0;
+
+  // Zobrist hash of the position (see Zobrist), kept up to date by every move
+  private long positionHash = 0;
+
+  // reused by startDeal, dealView is a fixed-size list backed by dealBuffer
+  private ICard[] dealBuffer = null;
+  private List<ICard> dealView = null;
+
   /**
    * Default Constructor.
    */
   public AFreecellModel() {
     numCascadePiles = -1;
     numOpenPiles = -1;
-
-    foundationPiles = new List[0];
-    cascadePiles = new List[0];
-    openPiles = new List[0];
-
     hasStarted = false;
   }
 
   @Override
   public List<ICard> getDeck() {
-    List<ICard> d = new ArrayList<ICard>();
+    List<ICard> d = new ArrayList<ICard>(52);
 
-    for (int i = 1; i < 14; i++) {
-      d.add(new Card(i, Suit.CLUB));
-      d.add(new Card(i, Suit.DIAMOND));
-      d.add(new Card(i, Suit.HEART));
-      d.add(new Card(i, Suit.SPADE));
+    // standard deck order: rank-major, then CLUB, DIAMOND, HEART, SPADE
+    for (int i = 0; i < 52; i++) {
+      d.add(Card.fromIndex(i));
     }
     return d;
   }
 
+  /**
+   * Deal game number n of Microsoft FreeCell (see DealGenerator). With 8 cascade piles this is the
+   * classic layout of that game.
+   *
+   * @param dealNumber      the number of the deal, in [1, DealGenerator.MAX_DEAL].
+   * @param numCascadePiles number of cascade piles.
+   * @param numOpenPiles    number of open piles.
+   * @throws IllegalArgumentException if the deal number or pile counts are invalid.
+   */
+  public void startDeal(long dealNumber, int numCascadePiles, int numOpenPiles) {
+    if (dealBuffer == null) {
+      dealBuffer = new ICard[52];
+      dealView = Arrays.asList(dealBuffer);
+    }
+    DealGenerator.deal(dealNumber, dealBuffer);
+    startGame(dealView, numCascadePiles, numOpenPiles, false);
+  }
+
   @Override
   public void startGame(List<ICard> deck, int numCascadePiles, int numOpenPiles, boolean shuffle) {
     hasStarted = true;
 
-    // throw error if too few piles
-    if (numCascadePiles < 4 || numOpenPiles < 1) {
+    // throw error if too few or too many piles
+    if (numCascadePiles < 4 || numOpenPiles < 1
+            || numCascadePiles > MAX_PILES || numOpenPiles > MAX_PILES) {
       throw new IllegalArgumentException("Error: Invalid Pile Size");
     }
 
-    // throw error if deck is invalid
-    if (deck.size() != 52 || !deck.containsAll(getDeck())) {
+    // throw error if deck is invalid. Deals from startDeal are valid by construction.
+    if (deck == null || (deck != dealView && !isValidDeck(deck))) {
       throw new IllegalArgumentException("Error: Invalid Deck");
     }
 
-    this.numCascadePiles = numCascadePiles;
-    this.numOpenPiles = numOpenPiles;
-
     // initialize piles
-    foundationPiles = new List[4];
-    cascadePiles = new List[numCascadePiles];
-    openPiles = new List[numOpenPiles];
+    allocatePiles(numCascadePiles, numOpenPiles);
 
-    // fill foundationPiles with empty ArrayLists
-    for (int i = 0; i < 4; i++) {
-      foundationPiles[i] = new ArrayList<ICard>();
+    // shuffle deck
+    if (shuffle) {
+      Collections.shuffle(deck);
     }
 
-    // fill cascadePiles with empty ArrayLists
+    // distribute deck to cascade piles
     for (int i = 0; i < numCascadePiles; i++) {
-      cascadePiles[i] = new ArrayList<ICard>();
+      cascadeSize[i] = (byte) (52 / numCascadePiles + (i < 52 % numCascadePiles ? 1 : 0));
+    }
+    makeRoom(0, 0);
+    for (int i = 0; i < 52; i++) {
+      int pile = i % numCascadePiles;
+      cascades[cascadeStart[pile] + i / numCascadePiles] = (byte) Card.indexOf(deck.get(i));
     }
 
-    // fill openPiles with invalid cards
+    started();
+    if (listener != null) {
+      listener.started();
+    }
+  }
+
+  /**
+   * Set up empty piles for a game with the given number of piles.
+   */
+  private void allocatePiles(int nCascades, int nOpens) {
+    this.numCascadePiles = nCascades;
+    this.numOpenPiles = nOpens;
+    cascades = new byte[CASCADE_CAPACITY];
+    cascadeStart = new byte[nCascades];
+    cascadeSize = new byte[nCascades];
+    opens = new byte[nOpens];
+    Arrays.fill(opens, EMPTY);
+    foundationSize = new byte[4];
+    foundationSuit = new byte[4];
+  }
+
+  /**
+   * Finish starting a game once the piles are filled in: forget the moves of any earlier game
+   * and compute what is derived from the piles.
+   */
+  private void started() {
+    hasStarted = true;
+    journal = NO_MOVES;
+    journalSize = 0;
+    journalLimit = 0;
+    journalShared = false;
+    autoMoveCount = 0;
+    positionHash = Zobrist.hash(this);
+
+    emptyOpenPiles = 0;
     for (int i = 0; i < numOpenPiles; i++) {
-      openPiles[i] = new ArrayList<ICard>();
+      if (opens[i] == EMPTY) {
+        emptyOpenPiles++;
+      }
     }
+    emptyCascadePiles = 0;
+    for (int i = 0; i < numCascadePiles; i++) {
+      if (cascadeSize[i] == 0) {
+        emptyCascadePiles++;
+      }
+    }
+    if (autoPlay) {
+      locateCards();
+    }
+  }
 
-    // shuffle deck
-    if (shuffle) {
-      Collections.shuffle(deck);
+  /**
+   * Replace the state of this game with the given position. The game is considered started
+   * afterwards. The position is trusted to have come from a valid game (see PackedState.of).
+   *
+   * @param state the position to restore.
+   * @throws IllegalArgumentException if the position has too few or too many piles.
+   */
+  public void restoreState(PackedState state) {
+    restorePosition(state);
+    if (listener != null) {
+      listener.started();
+    }
+  }
+
+  /**
+   * Replace the state of this game with the given position, without telling the listener.
+   */
+  private void restorePosition(PackedState state) {
+    int nCascades = state.getNumCascadePiles();
+    int nOpens = state.getNumOpenPiles();
+    if (nCascades < 4 || nOpens < 1 || nCascades > MAX_PILES || nOpens > MAX_PILES) {
+      throw new IllegalArgumentException("Error: Invalid Pile Size");
+    }
+
+    allocatePiles(nCascades, nOpens);
+
+    for (int i = 0; i < 4; i++) {
+      foundationSize[i] = (byte) state.getNumCardsInFoundationPile(i);
+      foundationSuit[i] = (byte) state.getFoundationSuit(i);
+    }
+
+    for (int i = 0; i < nCascades; i++) {
+      cascadeSize[i] = (byte) state.getNumCardsInCascadePile(i);
+    }
+    makeRoom(0, 0);
+    for (int i = 0; i < nCascades; i++) {
+      for (int j = 0; j < cascadeSize[i]; j++) {
+        cascades[cascadeStart[i] + j] = state.getCascadeCard(i, j);
+      }
     }
 
-    // distribute deck to cascadePiles
-    for (int i = 0; i < deck.size(); i++) {
-      cascadePiles[i % numCascadePiles].add(deck.get(i));
+    for (int i = 0; i < nOpens; i++) {
+      opens[i] = state.getOpenCard(i);
+    }
+
+    started();
+  }
+
+  /**
+   * Fill in cardPile from the piles.
+   */
+  private void locateCards() {
+    if (cardPile == null) {
+      cardPile = new int[52];
+      autoMoves = new int[52];
+    }
+    for (PileType type : PileType.values()) {
+      for (int i = 0; i < pileCount(type); i++) {
+        for (int j = 0; j < pileSize(type, i); j++) {
+          cardPile[cardAt(type, i, j)] = type.ordinal() | i << 2;
+        }
+      }
+    }
+  }
+
+  /**
+   * Lay the cascade piles out again, sharing the free space in the buffer evenly, so that the
+   * given pile has room for the given number of extra cards.
+   *
+   * @param pile   a cascade pile.
+   * @param needed how many more cards it must hold.
+   */
+  private void makeRoom(int pile, int needed) {
+    int used = 0;
+    for (int i = 0; i < numCascadePiles; i++) {
+      used += cascadeSize[i];
+    }
+    // the cards being added are already counted in the pile they come from
+    int free = CASCADE_CAPACITY - used - needed;
+    int share = free / numCascadePiles;
+    int extra = free % numCascadePiles;
+
+    byte[] old = cascades.clone();
+    int at = 0;
+    for (int i = 0; i < numCascadePiles; i++) {
+      System.arraycopy(old, cascadeStart[i], cascades, at, cascadeSize[i]);
+      cascadeStart[i] = (byte) at;
+      at += cascadeSize[i] + share + (i < extra ? 1 : 0) + (i == pile ? needed : 0);
+    }
+  }
+
+  private int cascadeRoom(int pile) {
+    int end = pile + 1 < numCascadePiles ? cascadeStart[pile + 1] : CASCADE_CAPACITY;
+    return end - cascadeStart[pile] - cascadeSize[pile];
+  }
+
+  /**
+   * Get the number of piles of a type.
+   *
+   * @param type any PileType.
+   * @return the number of piles.
+   */
+  protected int pileCount(PileType type) {
+    switch (type) {
+      case OPEN:
+        return numOpenPiles;
+      case CASCADE:
+        return numCascadePiles;
+      default:
+        return 4;
+    }
+  }
+
+  /**
+   * Get the number of cards in a pile, without checking that it exists.
+   *
+   * @param type       the type of the pile.
+   * @param pileNumber the number of the pile.
+   * @return the number of cards.
+   */
+  protected int pileSize(PileType type, int pileNumber) {
+    switch (type) {
+      case OPEN:
+        return opens[pileNumber] == EMPTY ? 0 : 1;
+      case CASCADE:
+        return cascadeSize[pileNumber];
+      default:
+        return foundationSize[pileNumber];
+    }
+  }
+
+  /**
+   * Get a card of a pile, without checking that it exists.
+   *
+   * @param type       the type of the pile.
+   * @param pileNumber the number of the pile.
+   * @param cardIndex  the index of the card in the pile, starting at 0 at the bottom.
+   * @return the index of the card (see Card.indexOf).
+   */
+  protected int cardAt(PileType type, int pileNumber, int cardIndex) {
+    switch (type) {
+      case OPEN:
+        return opens[pileNumber];
+      case CASCADE:
+        return cascades[cascadeStart[pileNumber] + cardIndex];
+      default:
+        return cardIndex * 4 + foundationSuit[pileNumber];
+    }
+  }
+
+  /**
+   * Get the number of cards in a cascade pile, without checking that it exists.
+   */
+  protected int cascadeSize(int pileNumber) {
+    return cascadeSize[pileNumber];
+  }
+
+  /**
+   * Get a card of a cascade pile, without checking that it exists.
+   *
+   * @return the index of the card (see Card.indexOf).
+   */
+  protected int cascadeCard(int pileNumber, int cardIndex) {
+    return cascades[cascadeStart[pileNumber] + cardIndex];
+  }
+
+  /**
+   * Checks if a card is black.
+   *
+   * @param card the index of a card (see Card.indexOf).
+   * @return if it is a CLUB or SPADE.
+   */
+  protected static boolean isBlack(int card) {
+    // CLUB and SPADE, see Suit
+    return ((card & 3) + 1 & 2) == 0;
+  }
+
+  /**
+   * Counts the number of open piles that are empty, in constant time.
+   *
+   * @return the number of empty open piles.
+   */
+  protected int countEmptyOpenPiles() {
+    return emptyOpenPiles;
+  }
+
+  /**
+   * Counts the number of cascade piles that are empty, in constant time.
+   *
+   * @return the number of empty cascade piles.
+   */
+  protected int countEmptyCascadePiles() {
+    return emptyCascadePiles;
+  }
+
+  /**
+   * Checks that the deck holds each of the 52 cards exactly once, using one bit per card.
+   *
+   * @param deck any deck.
+   * @return if the deck is valid.
+   */
+  private static boolean isValidDeck(List<ICard> deck) {
+    if (deck.size() != 52) {
+      return false;
+    }
+    long seen = 0;
+    for (ICard card : deck) {
+      int index = deckIndex(card);
+      if (index < 0 || (seen & (1L << index)) != 0) {
+        // invalid or duplicate card
+        return false;
+      }
+      seen |= 1L << index;
+    }
+    return seen == (1L << 52) - 1;
+  }
+
+  /**
+   * Find the index of a card in the standard deck order (see Card.indexOf).
+   *
+   * @param card any ICard, possibly null.
+   * @return the index of the card, or -1 if it is not a valid card.
+   */
+  private static int deckIndex(ICard card) {
+    if (card instanceof Card) {
+      // canonical cards, such as those from getDeck, are always valid
+      return ((Card) card).getIndex();
+    }
+    if (card == null || card.getRankNum() < 1 || card.getRankNum() > 13) {
+      return -1;
+    }
+    try {
+      return Card.indexOf(card);
+    } catch (IllegalArgumentException e) {
+      return -1;
     }
   }
 
@@ -102,64 +447,495 @@ public abstract class AFreecellModel implements FreecellModel<ICard> {
                             PileType destination, int destPileNumber);
 
   /**
-   * Get openPiles, cascadePiles, or foundationPiles depending on given PileType.
+   * Move the top count cards of one pile onto another, keeping their order, and record the move
+   * so that it can be undone. Clears the moves that could be redone. The move is not validated.
+   * If auto-play is on, safe cards are then sent to the foundations (see setAutoPlay).
    *
-   * @param type  type of pile we want to get pointer to.
-   * @return openPiles, cascadePiles, or foundationPiles.
+   * @param source         type of the source pile.
+   * @param pileNumber     index of the source pile.
+   * @param count          number of cards to move.
+   * @param destination    type of the destination pile.
+   * @param destPileNumber index of the destination pile.
    */
-  protected List<ICard>[] getPile(PileType type) {
-    switch (type) {
+  protected void transfer(PileType source, int pileNumber, int count,
+                          PileType destination, int destPileNumber) {
+    moveCards(source, pileNumber, count, destination, destPileNumber);
+    record(source, pileNumber, count, destination, destPileNumber, 0);
+    autoMoveCount = 0;
+    if (autoPlay) {
+      playSafeCards();
+    }
+  }
+
+  /**
+   * Add a move to the journal.
+   *
+   * @param flags AUTO for a move made by auto-play, otherwise 0.
+   */
+  private void record(PileType source, int pileNumber, int count,
+                      PileType destination, int destPileNumber, int flags) {
+    if (journalSize == journal.length) {
+      journal = Arrays.copyOf(journal, Math.max(64, journal.length * 2));
+      journalShared = false;
+    } else if (journalShared) {
+      journal = journal.clone();
+      journalShared = false;
+    }
+    // bits 0-1 source type, 2-9 source pile, 10-11 dest type, 12-19 dest pile, 20-25 count,
+    // 26 auto-play
+    int entry = source.ordinal() | pileNumber << 2 | destination.ordinal() << 10
+            | destPileNumber << 12 | count << 20 | flags;
+    journal[journalSize++] = entry;
+    journalLimit = journalSize;
+    if (listener != null) {
+      listener.recorded(entry);
+    }
+  }
+
+  /**
+   * Set what is told of every move, undo, redo and clearJournal, and of the game being started or
+   * restored again, from now on, e.g. to keep a log of the game. Forks do not share the listener.
+   *
+   * @param listener the listener, or null for none.
+   */
+  public void setJournalListener(JournalListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Make a move exactly as it was recorded in an entry given to a JournalListener, to rebuild a
+   * game from a log of its moves. The move is neither validated nor followed by auto-play, and
+   * the listener is not told of it.
+   *
+   * @param entry the recorded move, from a game in the same position.
+   * @throws IllegalStateException if the game has not started.
+   */
+  public void applyRecorded(int entry) {
+    checkHasStarted("Error: Game has not started - Apply Recorded");
+    JournalListener saved = listener;
+    listener = null;
+    try {
+      replay(entry, true);
+      PileType source = TYPES[entry & 3];
+      PileType destination = TYPES[(entry >>> 10) & 3];
+      record(source, (entry >>> 2) & 0xFF, (entry >>> 20) & 0x3F,
+              destination, (entry >>> 12) & 0xFF, entry & AUTO);
+    } finally {
+      listener = saved;
+    }
+    autoMoveCount = 0;
+  }
+
+  /**
+   * Get the moves of this game since it started, as recorded: the applied moves, then those that
+   * were undone and can be redone (see getMoveCount).
+   *
+   * @param buffer where to write the moves.
+   * @return the number of moves, which may be more than were written.
+   */
+  public int getJournal(int[] buffer) {
+    System.arraycopy(journal, 0, buffer, 0, Math.min(journalLimit, buffer.length));
+    return journalLimit;
+  }
+
+  /**
+   * Replace the state of this game with the given position and moves, as from getJournal and
+   * getMoveCount, so that the moves can be undone and redone. The moves are trusted to have led
+   * to the position.
+   *
+   * @param state         the position to restore.
+   * @param moves         the moves, as from getJournal.
+   * @param moveCount     how many of the moves have been applied.
+   * @param journalLength the number of moves, including those that can be redone.
+   * @throws IllegalArgumentException if the position has too few or too many piles or the counts
+   *                                  are invalid.
+   */
+  public void restoreState(PackedState state, int[] moves, int moveCount, int journalLength) {
+    if (moveCount < 0 || moveCount > journalLength || journalLength > moves.length) {
+      throw new IllegalArgumentException("Error: Invalid Move Count");
+    }
+    restorePosition(state);
+    journal = Arrays.copyOf(moves, journalLength);
+    journalSize = moveCount;
+    journalLimit = journalLength;
+    if (listener != null) {
+      listener.started();
+    }
+  }
+
+  /**
+   * Turn auto-play on or off. With auto-play on, every move is followed by sending safe cards
+   * from the cascade and open piles to the foundations, until none is left. A card is safe once
+   * both cards of the other color one rank lower are on the foundations, so no card could still
+   * need to be placed on it; aces and twos are always safe. Undoing a move also undoes the auto
+   * moves that followed it.
+   *
+   * @param autoPlay whether to auto-play.
+   */
+  public void setAutoPlay(boolean autoPlay) {
+    if (autoPlay && !this.autoPlay && hasStarted) {
+      locateCards();
+    }
+    this.autoPlay = autoPlay;
+  }
+
+  /**
+   * @return whether auto-play is on (see setAutoPlay).
+   */
+  public boolean isAutoPlay() {
+    return autoPlay;
+  }
+
+  /**
+   * Get the auto moves that followed the last move or redo, in the order they were made.
+   *
+   * @param buffer where to write the moves (see Moves). 52 entries always suffice.
+   * @return the number of auto moves, which may be more than were written.
+   */
+  public int getAutoMoves(int[] buffer) {
+    System.arraycopy(autoMoves, 0, buffer, 0, Math.min(autoMoveCount, buffer.length));
+    return autoMoveCount;
+  }
+
+  /**
+   * Send safe cards to the foundations until there are none. Only the next card of each suit can
+   * go to a foundation, so each round looks up where those four cards are rather than looking at
+   * every pile.
+   */
+  private void playSafeCards() {
+    boolean played = true;
+    while (played) {
+      played = false;
+      for (int suit = 0; suit < 4; suit++) {
+        int foundation = foundationOf(suit);
+        int height = foundation < 0 ? 0 : foundationSize[foundation];
+        if (height == 13 || !isSafe(suit, height)) {
+          continue;
+        }
+        // the next card of the suit, if it is on top of a cascade or open pile
+        int card = height * 4 + suit;
+        PileType source = TYPES[cardPile[card] & 3];
+        int pileNumber = cardPile[card] >>> 2;
+        if (source == PileType.FOUNDATION) {
+          continue;
+        }
+        int top = pileSize(source, pileNumber) - 1;
+        if (cardAt(source, pileNumber, top) != card) {
+          continue;
+        }
+
+        if (foundation < 0) {
+          foundation = foundationOf(-1);
+        }
+        autoMoves[autoMoveCount++] = Moves.of(source, pileNumber, top,
+                PileType.FOUNDATION, foundation);
+        moveCards(source, pileNumber, 1, PileType.FOUNDATION, foundation);
+        record(source, pileNumber, 1, PileType.FOUNDATION, foundation, AUTO);
+        played = true;
+      }
+    }
+  }
+
+  /**
+   * Whether the next card of a suit is safe to play: both cards of the other color one rank
+   * lower are on the foundations.
+   *
+   * @param height the number of cards of the suit on the foundations.
+   */
+  private boolean isSafe(int suit, int height) {
+    int rank = height + 1;
+    if (rank <= 2) {
+      return true;
+    }
+    // CLUB and SPADE are black, DIAMOND and HEART red (see Suit)
+    boolean black = suit == 0 || suit == 3;
+    int other1 = foundationOf(black ? 1 : 0);
+    int other2 = foundationOf(black ? 2 : 3);
+    return other1 >= 0 && foundationSize[other1] >= rank - 1
+            && other2 >= 0 && foundationSize[other2] >= rank - 1;
+  }
+
+  /**
+   * Find the foundation pile holding a suit.
+   *
+   * @param suit the suit, or -1 for the first empty foundation pile.
+   * @return the pile, or -1 if there is none.
+   */
+  private int foundationOf(int suit) {
+    for (int i = 0; i < 4; i++) {
+      if (foundationSize[i] == 0 ? suit < 0 : foundationSuit[i] == suit) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Move the top count cards of one pile onto another, keeping their order, and update the
+   * position hash, cardPile and the empty pile counts. Only a cascade pile can take more than one
+   * card, and the cards are copied as one range.
+   */
+  private void moveCards(PileType source, int pileNumber, int count,
+                         PileType destination, int destPileNumber) {
+    int srcSize = pileSize(source, pileNumber);
+    int destSize = pileSize(destination, destPileNumber);
+    int from = srcSize - count;
+
+    // a run moved between cascade piles keeps its links, only its bottom card changes neighbour
+    int rehashed = source == PileType.CASCADE && destination == PileType.CASCADE ? 1 : count;
+    for (int i = 0; i < rehashed; i++) {
+      int card = cardAt(source, pileNumber, from + i);
+      int oldBelow = from + i > 0 ? cardAt(source, pileNumber, from + i - 1) : -1;
+      int newBelow = i > 0 ? oldBelow
+              : destSize == 0 ? -1 : cardAt(destination, destPileNumber, destSize - 1);
+      positionHash ^= Zobrist.key(source, card, oldBelow)
+              ^ Zobrist.key(destination, card, newBelow);
+    }
+
+    if (destSize == 0) {
+      countEmpty(destination, -1);
+    }
+    if (from == 0) {
+      countEmpty(source, 1);
+    }
+    if (cardPile != null) {
+      int location = destination.ordinal() | destPileNumber << 2;
+      for (int i = from; i < srcSize; i++) {
+        cardPile[cardAt(source, pileNumber, i)] = location;
+      }
+    }
+
+    switch (destination) {
+      case CASCADE:
+        if (cascadeRoom(destPileNumber) < count) {
+          makeRoom(destPileNumber, count);
+        }
+        int at = cascadeStart[destPileNumber] + destSize;
+        if (source == PileType.CASCADE) {
+          System.arraycopy(cascades, cascadeStart[pileNumber] + from, cascades, at, count);
+        } else {
+          cascades[at] = (byte) cardAt(source, pileNumber, from);
+        }
+        cascadeSize[destPileNumber] += count;
+        break;
       case OPEN:
-        // return openPiles
-        return openPiles;
-      case FOUNDATION:
-        // return foundationPiles
-        return foundationPiles;
+        opens[destPileNumber] = (byte) cardAt(source, pileNumber, from);
+        break;
+      default:
+        foundationSuit[destPileNumber] = (byte) (cardAt(source, pileNumber, from) & 3);
+        foundationSize[destPileNumber]++;
+        break;
+    }
+
+    switch (source) {
       case CASCADE:
-        // return cascadePiles
-        return cascadePiles;
+        cascadeSize[pileNumber] -= count;
+        break;
+      case OPEN:
+        opens[pileNumber] = EMPTY;
+        break;
       default:
-        // throw error if invalid PileType
-        throw new IllegalArgumentException("Error: Invalid PileType");
+        foundationSize[pileNumber]--;
+        break;
+    }
+  }
+
+  private void countEmpty(PileType type, int change) {
+    if (type == PileType.OPEN) {
+      emptyOpenPiles += change;
+    } else if (type == PileType.CASCADE) {
+      emptyCascadePiles += change;
+    }
+  }
+
+  /**
+   * Create an independent copy of this game, in the same position and with the same history,
+   * so moves made, undone or redone in one do not affect the other. Copying the piles takes a
+   * few hundred bytes, and the history is shared until either game makes a new move, so a fork
+   * that is never moved serves as a cheap snapshot. Auto-play is on in the copy if it is on in
+   * this game.
+   *
+   * @return the copy, of the same class as this game.
+   */
+  public AFreecellModel fork() {
+    AFreecellModel copy = newGame();
+    copy.autoPlay = autoPlay;
+    if (!hasStarted) {
+      return copy;
+    }
+
+    copy.numCascadePiles = numCascadePiles;
+    copy.numOpenPiles = numOpenPiles;
+    copy.hasStarted = true;
+    copy.cascades = cascades.clone();
+    copy.cascadeStart = cascadeStart.clone();
+    copy.cascadeSize = cascadeSize.clone();
+    copy.opens = opens.clone();
+    copy.foundationSize = foundationSize.clone();
+    copy.foundationSuit = foundationSuit.clone();
+
+    copy.journal = journal;
+    copy.journalSize = journalSize;
+    copy.journalLimit = journalLimit;
+    journalShared = true;
+    copy.journalShared = true;
+
+    copy.positionHash = positionHash;
+    if (cardPile != null) {
+      copy.cardPile = cardPile.clone();
+      copy.autoMoves = autoMoves.clone();
+    }
+    copy.autoMoveCount = autoMoveCount;
+    copy.emptyOpenPiles = emptyOpenPiles;
+    copy.emptyCascadePiles = emptyCascadePiles;
+    return copy;
+  }
+
+  /**
+   * Create a game of the same kind as this one that has not started, for fork.
+   *
+   * @return the new game.
+   */
+  protected abstract AFreecellModel newGame();
+
+  /**
+   * Apply a journal entry forwards (redo) or backwards (undo), without recording it.
+   *
+   * @param entry   the journal entry.
+   * @param forward whether to move the cards from the source to the destination.
+   */
+  private void replay(int entry, boolean forward) {
+    PileType source = TYPES[entry & 3];
+    int pileNumber = (entry >>> 2) & 0xFF;
+    PileType destination = TYPES[(entry >>> 10) & 3];
+    int destPileNumber = (entry >>> 12) & 0xFF;
+    int count = (entry >>> 20) & 0x3F;
+    if (forward) {
+      moveCards(source, pileNumber, count, destination, destPileNumber);
+    } else {
+      moveCards(destination, destPileNumber, count, source, pileNumber);
+    }
+  }
+
+  /**
+   * Check if there is a move that can be undone.
+   *
+   * @return if undo is possible.
+   */
+  public boolean canUndo() {
+    return journalSize > 0;
+  }
+
+  /**
+   * Check if there is an undone move that can be redone.
+   *
+   * @return if redo is possible.
+   */
+  public boolean canRedo() {
+    return journalLimit > journalSize;
+  }
+
+  /**
+   * Undo the last move, along with any auto moves that followed it. Takes time proportional to
+   * the number of cards moved.
+   *
+   * @throws IllegalStateException if the game has not started or there is no move to undo.
+   */
+  public void undo() {
+    checkHasStarted("Error: Game has not started - Undo");
+    if (!canUndo()) {
+      throw new IllegalStateException("Error: No Move to Undo");
+    }
+    int entry;
+    do {
+      entry = journal[--journalSize];
+      replay(entry, false);
+    } while ((entry & AUTO) != 0);
+    autoMoveCount = 0;
+    if (listener != null) {
+      listener.undone();
     }
   }
 
   /**
-   * Finds the numerical difference between the ranks of two cards.
-   * A = 1, 2 = 2, ... 10 = 10, J = 11, Q = 12, K = 13.
+   * Redo the last undone move, along with any auto moves that followed it.
    *
-   * @param card1 any ICard.
-   * @param card2 any ICard.
-   * @return the numerical difference in the cards' ranks.
+   * @throws IllegalStateException if the game has not started or there is no move to redo.
    */
-  protected int rankDif(ICard card1, ICard card2) {
-    return card1.getRankNum() - card2.getRankNum();
+  public void redo() {
+    checkHasStarted("Error: Game has not started - Redo");
+    if (!canRedo()) {
+      throw new IllegalStateException("Error: No Move to Redo");
+    }
+    replay(journal[journalSize++], true);
+    autoMoveCount = 0;
+    while (journalSize < journalLimit && (journal[journalSize] & AUTO) != 0) {
+      int entry = journal[journalSize++];
+      PileType source = TYPES[entry & 3];
+      int pileNumber = (entry >>> 2) & 0xFF;
+      int cardIndex = pileSize(source, pileNumber) - 1;
+      if (autoMoveCount < autoMoves.length) {
+        // auto-play may have been turned off since
+        autoMoves[autoMoveCount++] = Moves.of(source, pileNumber, cardIndex,
+                PileType.FOUNDATION, (entry >>> 12) & 0xFF);
+      }
+      replay(entry, true);
+    }
+    if (listener != null) {
+      listener.redone();
+    }
   }
 
   /**
-   * Checks if two cards are the same color.
+   * Forget the moves made so far, so that they can no longer be undone or redone, e.g. to keep
+   * the journal of a long-running game from growing without bound. The move count starts again
+   * from 0 and the journal's storage is reused for the moves that follow.
    *
-   * @param card1 any ICard.
-   * @param card2 any ICard.
-   * @return if the two cards are the same color.
+   * @throws IllegalStateException if the game has not started.
    */
-  protected boolean sameColor(ICard card1, ICard card2) {
-    return card1.getIsBlack() == card2.getIsBlack();
+  public void clearJournal() {
+    checkHasStarted("Error: Game has not started - Clear Journal");
+    if (journalShared) {
+      // a fork still holds the moves, so leave them to it
+      journal = NO_MOVES;
+      journalShared = false;
+    }
+    journalSize = 0;
+    journalLimit = 0;
+    if (listener != null) {
+      listener.cleared();
+    }
+  }
+
+  /**
+   * Get the number of moves applied since the game started, not counting undone moves. Auto
+   * moves count as moves.
+   *
+   * @return the number of applied moves.
+   */
+  public int getMoveCount() {
+    return journalSize;
+  }
+
+  @Override
+  public long getPositionHash() {
+    checkHasStarted("Error: Game has not started - Get Position Hash");
+    return positionHash;
   }
 
   @Override
   public boolean isGameOver() {
-    return foundationPiles[0].size() == 13
-            && foundationPiles[1].size() == 13
-            && foundationPiles[2].size() == 13
-            && foundationPiles[3].size() == 13;
+    return foundationSize[0] == 13
+            && foundationSize[1] == 13
+            && foundationSize[2] == 13
+            && foundationSize[3] == 13;
   }
 
   @Override
   public int getNumCardsInFoundationPile(int index) {
     checkHasStarted("Error: Game has not started - Get Num Foundation Pile");
     inBounds(index, 4, "Error: Invalid Index - Get Num Foundation Pile");
-    return foundationPiles[index].size();
+    return foundationSize[index];
   }
 
   @Override
@@ -171,14 +947,14 @@ public abstract class AFreecellModel implements FreecellModel<ICard> {
   public int getNumCardsInCascadePile(int index) {
     checkHasStarted("Error: Game has not started - Get Num Cascade Pile");
     inBounds(index, numCascadePiles, "Error: Invalid Index - Get Num Cascade Pile");
-    return cascadePiles[index].size();
+    return cascadeSize[index];
   }
 
   @Override
   public int getNumCardsInOpenPile(int index) {
     checkHasStarted("Error: Game has not started - Get Num Open Pile");
     inBounds(index, numOpenPiles, "Error: Invalid Index - Get Num Open Pile");
-    return openPiles[index].size();
+    return pileSize(PileType.OPEN, index);
   }
 
   @Override
@@ -190,28 +966,28 @@ public abstract class AFreecellModel implements FreecellModel<ICard> {
   public ICard getFoundationCardAt(int pileIndex, int cardIndex) {
     checkHasStarted("Error: Game has not started - Get Foundation Card");
     inBounds(pileIndex, 4, "Error: Invalid Pile Index - Get Foundation Card");
-    inBounds(cardIndex, foundationPiles[pileIndex].size(),
+    inBounds(cardIndex, foundationSize[pileIndex],
             "Error: Invalid Card Index - Get Foundation Card");
-    return foundationPiles[pileIndex].get(cardIndex);
+    return Card.fromIndex(cardAt(PileType.FOUNDATION, pileIndex, cardIndex));
   }
 
   @Override
   public ICard getCascadeCardAt(int pileIndex, int cardIndex) {
     checkHasStarted("Error: Game has not started - Get Cascade Card");
     inBounds(pileIndex, numCascadePiles, "Error: Invalid Pile Index - Get Cascade Card");
-    inBounds(cardIndex, cascadePiles[pileIndex].size(),
+    inBounds(cardIndex, cascadeSize[pileIndex],
             "Error: Invalid Card Index - Get Cascade Card");
-    return cascadePiles[pileIndex].get(cardIndex);
+    return Card.fromIndex(cascadeCard(pileIndex, cardIndex));
   }
 
   @Override
   public ICard getOpenCardAt(int pileIndex) {
     checkHasStarted("Error: Game has not started - Get Open Card");
     inBounds(pileIndex, numOpenPiles, "Error: Invalid Index - Get Open Card");
-    if (openPiles[pileIndex].isEmpty()) {
+    if (opens[pileIndex] == EMPTY) {
       return null;
     }
-    return openPiles[pileIndex].get(0);
+    return Card.fromIndex(opens[pileIndex]);
   }
 
   /**
@@ -0,0 +1,95 @@
+package cs3500.freecell.model;
+
+import cs3500.freecell.cards.Card;
+import cs3500.freecell.cards.ICard;
+
+/**
+ * Generates numbered deals compatible with Microsoft FreeCell. Deal n is produced by the
+ * Microsoft C runtime rand() seeded with n, and dealing the result round robin onto 8 cascade
+ * piles with startGame gives the classic layout of game n. Deals are written into caller-provided
+ * arrays, so regenerating a deal allocates nothing.
+ */
+public final class DealGenerator {
+  /**
+   * Highest supported deal number.
+   */
+  public static final long MAX_DEAL = Integer.MAX_VALUE;
+
+  // the deck in standard order (see Card.indexOf), which is also the order Microsoft used
+  private static final ICard[] DECK = new ICard[52];
+
+  static {
+    for (int i = 0; i < 52; i++) {
+      DECK[i] = Card.fromIndex(i);
+    }
+  }
+
+  private DealGenerator() {
+  }
+
+  /**
+   * Write deal number n, in dealing order, into the first 52 entries of out.
+   *
+   * @param dealNumber the number of the deal, in [1, MAX_DEAL].
+   * @param out        the array to fill.
+   * @throws IllegalArgumentException if the deal number is out of range or out is too short.
+   */
+  public static void deal(long dealNumber, ICard[] out) {
+    checkArgs(dealNumber, out.length);
+    System.arraycopy(DECK, 0, out, 0, 52);
+
+    long seed = dealNumber;
+    for (int left = 52; left > 0; left--) {
+      seed = (seed * 214013 + 2531011) & 0xFFFFFFFFL;
+      int j = (int) ((seed >>> 16) & 0x7FFF) % left;
+      // the dealt card takes the place of the last card still in the deck
+      ICard card = out[j];
+      out[j] = out[left - 1];
+      out[left - 1] = card;
+    }
+    // cards were dealt from the back of the array forward
+    for (int i = 0, k = 51; i < k; i++, k--) {
+      ICard t = out[i];
+      out[i] = out[k];
+      out[k] = t;
+    }
+  }
+
+  /**
+   * Write deal number n, in dealing order, into the first 52 entries of out as card indices
+   * (see Card.indexOf).
+   *
+   * @param dealNumber the number of the deal, in [1, MAX_DEAL].
+   * @param out        the array to fill.
+   * @throws IllegalArgumentException if the deal number is out of range or out is too short.
+   */
+  public static void deal(long dealNumber, byte[] out) {
+    checkArgs(dealNumber, out.length);
+    for (int i = 0; i < 52; i++) {
+      out[i] = (byte) i;
+    }
+
+    long seed = dealNumber;
+    for (int left = 52; left > 0; left--) {
+      seed = (seed * 214013 + 2531011) & 0xFFFFFFFFL;
+      int j = (int) ((seed >>> 16) & 0x7FFF) % left;
+      byte card = out[j];
+      out[j] = out[left - 1];
+      out[left - 1] = card;
+    }
+    for (int i = 0, k = 51; i < k; i++, k--) {
+      byte t = out[i];
+      out[i] = out[k];
+      out[k] = t;
+    }
+  }
+
+  private static void checkArgs(long dealNumber, int length) {
+    if (dealNumber < 1 || dealNumber > MAX_DEAL) {
+      throw new IllegalArgumentException("Error: Deal Number out of Bounds [1, " + MAX_DEAL + "]");
+    }
+    if (length < 52) {
+      throw new IllegalArgumentException("Error: Deal Array Too Short");
+    }
+  }
+}
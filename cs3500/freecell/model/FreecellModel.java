@@ -58,6 +58,26 @@ public interface FreecellModel<K> extends FreecellModelState<K> {
             PileType destination,
             int destPileNumber);
 
+  /**
+   * Move a card from the given source pile to the given destination pile, if the move is valid,
+   * and say why not if it is not. Unlike move, this method does not throw, so rejecting a move
+   * costs no more than checking it.
+   *
+   * @param source         the type of the source pile see @link{PileType}
+   * @param pileNumber     the pile number of the given type, starting at 0
+   * @param cardIndex      the index of the card to be moved from the source
+   *                       pile, starting at 0
+   * @param destination    the type of the destination pile
+   * @param destPileNumber the pile number of the given type, starting at 0
+   * @return MoveResult.OK if the move was made, otherwise why it is not possible, in which case
+   *         the game is unchanged
+   */
+  MoveResult tryMove(PileType source,
+                     int pileNumber,
+                     int cardIndex,
+                     PileType destination,
+                     int destPileNumber);
+
   /**
    * Signal if the game is over or not.
    *
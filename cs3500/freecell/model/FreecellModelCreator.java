@@ -1,5 +1,6 @@
 package cs3500.freecell.model;
 
+import cs3500.freecell.cards.ICard;
 import cs3500.freecell.model.multimove.MultiMoveFreecellModel;
 
 /**
@@ -21,7 +22,7 @@ public class FreecellModelCreator {
    * @param type the game type - single or multi move.
    * @return new SimpleFreecellModel or new MultiMoveFreecellModel.
    */
-  public static FreecellModel create(GameType type) {
+  public static FreecellModel<ICard> create(GameType type) {
     if (type == GameType.SINGLEMOVE) {
       return new SimpleFreecellModel();
     }
@@ -86,4 +86,25 @@ public interface FreecellModelState<K> {
    * @throws IllegalStateException    if the game has not started
    */
   K getOpenCardAt(int pileIndex);
+
+  /**
+   * Get a 64-bit hash of the current position. Positions that only differ by the order of the
+   * cascade piles, of the open piles or of the foundation piles have the same hash. The hash is
+   * kept up to date as moves are made, so reading it takes constant time.
+   *
+   * @return the hash of the current position
+   * @throws IllegalStateException    if the game has not started
+   */
+  long getPositionHash();
+
+  /**
+   * Find every legal move from the current position, following the same rules as move. Moves
+   * are encoded as ints (see Moves) and written to the start of the buffer, in no particular
+   * order. If the buffer is too short, only the moves that fit are written; a buffer of
+   * Moves.maxLegalMoves entries is always long enough. This method does not throw.
+   *
+   * @param buffer where to write the moves
+   * @return the number of legal moves, or 0 if the game has not started
+   */
+  int getLegalMoves(int[] buffer);
 }
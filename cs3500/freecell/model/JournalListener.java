@@ -0,0 +1,38 @@
+package cs3500.freecell.model;
+
+/**
+ * Told of every change to the moves of an AFreecellModel, in the order they happen, e.g. to keep
+ * a log of the game (see AFreecellModel.setJournalListener). Calls are made on the thread that
+ * changed the game, after the change.
+ */
+public interface JournalListener {
+
+  /**
+   * A move was made and recorded, either by the player or by auto-play. Replaying the entry with
+   * AFreecellModel.applyRecorded makes the same change to a game in the same position.
+   *
+   * @param entry the move as the game recorded it.
+   */
+  void recorded(int entry);
+
+  /**
+   * AFreecellModel.undo was called.
+   */
+  void undone();
+
+  /**
+   * AFreecellModel.redo was called.
+   */
+  void redone();
+
+  /**
+   * AFreecellModel.clearJournal was called.
+   */
+  void cleared();
+
+  /**
+   * The game was started or restored again, with AFreecellModel.startGame, startDeal or
+   * restoreState, so its position and moves are now those of another game.
+   */
+  void started();
+}
@@ -0,0 +1,24 @@
+package cs3500.freecell.model;
+
+/**
+ * The outcome of FreecellModel.tryMove: OK, or why the move was rejected.
+ * OK                  The move was made.
+ * NOT_STARTED         The game has not started.
+ * INVALID_PILE        A pile type is null or a pile number is out of range.
+ * INVALID_CARD        The card index is out of range.
+ * EMPTY_SOURCE        The source pile is empty.
+ * NOT_TOP_CARD        Only the top card of the source pile can be moved.
+ * FOUNDATION_NEEDS_ACE Only an ace can start a foundation pile.
+ * OPEN_FULL           The destination open pile already holds a card.
+ * FOUNDATION_MISMATCH The card does not follow the top card of the foundation pile.
+ * CASCADE_MISMATCH    The card is not of the other color and one rank below the top card.
+ * TOO_MANY_CARDS      Not enough empty piles to move a block that long.
+ * BLOCK_MISMATCH      The bottom card of the block does not fit on the destination pile.
+ * BLOCK_COLOR         The block does not alternate colors.
+ * BLOCK_RANK          The block does not go down one rank at a time.
+ */
+public enum MoveResult {
+  OK, NOT_STARTED, INVALID_PILE, INVALID_CARD, EMPTY_SOURCE, NOT_TOP_CARD, FOUNDATION_NEEDS_ACE,
+  OPEN_FULL, FOUNDATION_MISMATCH, CASCADE_MISMATCH, TOO_MANY_CARDS, BLOCK_MISMATCH, BLOCK_COLOR,
+  BLOCK_RANK;
+}
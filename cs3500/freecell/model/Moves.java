@@ -0,0 +1,116 @@
+package cs3500.freecell.model;
+
+/**
+ * Encodes a move as a single int, as filled in by FreecellModelState.getLegalMoves. The fields
+ * are those of FreecellModel.move, with piles and cards numbered from 0:
+ * <pre>
+ * bits 0-1   source pile type (PileType ordinal)
+ * bits 2-9   source pile number
+ * bits 10-11 destination pile type (PileType ordinal)
+ * bits 12-19 destination pile number
+ * bits 20-25 index of the moved card in the source pile
+ * </pre>
+ * Every move of a game fits, as AFreecellModel.startGame and restoreState reject games with more
+ * than AFreecellModel.MAX_PILES piles of one type.
+ */
+public final class Moves {
+  private static final PileType[] TYPES = PileType.values();
+
+  private Moves() {
+  }
+
+  /**
+   * Encode a move.
+   *
+   * @param source         the type of the source pile.
+   * @param pileNumber     the pile number of the given type, starting at 0.
+   * @param cardIndex      the index of the card to be moved, starting at 0.
+   * @param destination    the type of the destination pile.
+   * @param destPileNumber the pile number of the given type, starting at 0.
+   * @return the move.
+   */
+  public static int of(PileType source, int pileNumber, int cardIndex,
+                       PileType destination, int destPileNumber) {
+    return source.ordinal() | pileNumber << 2 | destination.ordinal() << 10
+            | destPileNumber << 12 | cardIndex << 20;
+  }
+
+  /**
+   * @param move an encoded move.
+   * @return the type of its source pile.
+   */
+  public static PileType getSource(int move) {
+    return TYPES[move & 3];
+  }
+
+  /**
+   * @param move an encoded move.
+   * @return the number of its source pile.
+   */
+  public static int getPileNumber(int move) {
+    return (move >>> 2) & 0xFF;
+  }
+
+  /**
+   * @param move an encoded move.
+   * @return the index of the moved card in the source pile.
+   */
+  public static int getCardIndex(int move) {
+    return (move >>> 20) & 0x3F;
+  }
+
+  /**
+   * @param move an encoded move.
+   * @return the type of its destination pile.
+   */
+  public static PileType getDestination(int move) {
+    return TYPES[(move >>> 10) & 3];
+  }
+
+  /**
+   * @param move an encoded move.
+   * @return the number of its destination pile.
+   */
+  public static int getDestPileNumber(int move) {
+    return (move >>> 12) & 0xFF;
+  }
+
+  /**
+   * Make an encoded move.
+   *
+   * @param model the game.
+   * @param move  an encoded move.
+   * @throws IllegalArgumentException if the move is not possible.
+   * @throws IllegalStateException    if the game has not started.
+   */
+  public static void apply(FreecellModel<?> model, int move) {
+    model.move(getSource(move), getPileNumber(move), getCardIndex(move),
+            getDestination(move), getDestPileNumber(move));
+  }
+
+  /**
+   * Get a buffer size that holds every legal move of any position of a game with the given
+   * number of piles.
+   *
+   * @param numCascadePiles the number of cascade piles.
+   * @param numOpenPiles    the number of open piles.
+   * @return the size.
+   */
+  public static int maxLegalMoves(int numCascadePiles, int numOpenPiles) {
+    int piles = 4 + numOpenPiles + numCascadePiles;
+    // every pair of piles, plus up to 12 longer blocks onto each empty cascade pile
+    return piles * piles + numCascadePiles * numCascadePiles * 12;
+  }
+
+  /**
+   * Write a move the way a player types it, with piles and cards numbered from 1, e.g. "C1 7 F1".
+   *
+   * @param move an encoded move.
+   * @return the move as text.
+   */
+  public static String toString(int move) {
+    return getSource(move).name().charAt(0) + "" + (getPileNumber(move) + 1) + " "
+            + (getCardIndex(move) + 1) + " " + getDestination(move).name().charAt(0)
+            + (getDestPileNumber(move) + 1);
+  }
+}
@@ -0,0 +1,405 @@
+package cs3500.freecell.model;
+
+import java.util.Arrays;
+
+import cs3500.freecell.cards.Card;
+import cs3500.freecell.cards.ICard;
+
+/**
+ * Compact, immutable encoding of a freecell position. Each card is stored as a single byte in
+ * [0, 51] (see Card.indexOf), the foundation piles are four 4-bit counters plus a 2-bit suit each,
+ * and the cascade piles are length-prefixed byte runs. Two positions are equal iff their piles
+ * hold the same cards in the same places, so a PackedState can be used directly as a hash key.
+ * <pre>
+ * [0]        number of cascade piles
+ * [1]        number of open piles
+ * [2], [3]   foundation counters, 4 bits per pile (pile 0 in the low bits of [2])
+ * [4]        foundation suits, 2 bits per pile (pile 0 in the low bits)
+ * [5 ...]    one byte per open pile, EMPTY if the pile holds no card
+ * [...]      per cascade pile: its length, then its cards from bottom to top
+ * </pre>
+ */
+public final class PackedState {
+  /**
+   * Byte stored in an open pile that holds no card.
+   */
+  public static final byte EMPTY = -1;
+
+  private static final int HEADER = 5;
+
+  private final byte[] data;
+  private final int hash;
+
+  /**
+   * Constructor. Takes ownership of the given encoding.
+   *
+   * @param data the encoded position.
+   */
+  private PackedState(byte[] data) {
+    this.data = data;
+    this.hash = Arrays.hashCode(data);
+  }
+
+  /**
+   * Encode the position of a started game.
+   *
+   * @param state the game to encode.
+   * @return the encoded position.
+   * @throws IllegalStateException if the game has not started.
+   * @throws IllegalArgumentException if the game has more than 255 cascade or open piles.
+   */
+  public static PackedState of(FreecellModelState<ICard> state) {
+    int numCascades = state.getNumCascadePiles();
+    int numOpens = state.getNumOpenPiles();
+    if (numCascades == -1) {
+      throw new IllegalStateException("Error: Game has not started - Pack State");
+    }
+    if (numCascades > 255 || numOpens > 255) {
+      throw new IllegalArgumentException("Error: Invalid Pile Size - Pack State");
+    }
+
+    int size = HEADER + numOpens + numCascades;
+    for (int i = 0; i < numCascades; i++) {
+      size += state.getNumCardsInCascadePile(i);
+    }
+
+    byte[] data = new byte[size];
+    data[0] = (byte) numCascades;
+    data[1] = (byte) numOpens;
+
+    int counters = 0;
+    int suits = 0;
+    for (int i = 0; i < 4; i++) {
+      int n = state.getNumCardsInFoundationPile(i);
+      counters |= n << (4 * i);
+      if (n > 0) {
+        suits |= (Card.indexOf(state.getFoundationCardAt(i, 0)) & 3) << (2 * i);
+      }
+    }
+    data[2] = (byte) counters;
+    data[3] = (byte) (counters >>> 8);
+    data[4] = (byte) suits;
+
+    int pos = HEADER;
+    for (int i = 0; i < numOpens; i++) {
+      ICard card = state.getOpenCardAt(i);
+      data[pos++] = card == null ? EMPTY : (byte) Card.indexOf(card);
+    }
+
+    for (int i = 0; i < numCascades; i++) {
+      int n = state.getNumCardsInCascadePile(i);
+      data[pos++] = (byte) n;
+      for (int j = 0; j < n; j++) {
+        data[pos++] = (byte) Card.indexOf(state.getCascadeCardAt(i, j));
+      }
+    }
+    return new PackedState(data);
+  }
+
+  /**
+   * Encode a position given as raw card indices.
+   *
+   * @param cascades        the cards of each cascade pile, bottom to top. Only the first
+   *                        cascadeLengths[i] entries of cascades[i] are used.
+   * @param cascadeLengths  the number of cards in each cascade pile.
+   * @param opens           the card in each open pile, or EMPTY.
+   * @param foundationCounts the number of cards in each of the 4 foundation piles.
+   * @param foundationSuits the suit ordinal of each foundation pile. Ignored for empty piles.
+   * @return the encoded position.
+   * @throws IllegalArgumentException if the piles are malformed.
+   */
+  public static PackedState of(byte[][] cascades, int[] cascadeLengths, byte[] opens,
+                               int[] foundationCounts, int[] foundationSuits) {
+    return new PackedState(encode(cascades, cascadeLengths, opens,
+            foundationCounts, foundationSuits, false));
+  }
+
+  /**
+   * Encode a position given as raw card indices in its canonical form (see canonical).
+   * Equivalent to of(...).canonical() without the intermediate encoding.
+   *
+   * @param cascades        the cards of each cascade pile, bottom to top.
+   * @param cascadeLengths  the number of cards in each cascade pile.
+   * @param opens           the card in each open pile, or EMPTY.
+   * @param foundationCounts the number of cards in each of the 4 foundation piles.
+   * @param foundationSuits the suit ordinal of each foundation pile. Ignored for empty piles.
+   * @return the canonical encoded position.
+   * @throws IllegalArgumentException if the piles are malformed.
+   */
+  public static PackedState canonicalOf(byte[][] cascades, int[] cascadeLengths, byte[] opens,
+                                        int[] foundationCounts, int[] foundationSuits) {
+    return new PackedState(encode(cascades, cascadeLengths, opens,
+            foundationCounts, foundationSuits, true));
+  }
+
+  /**
+   * Build the encoding of the given piles.
+   *
+   * @param canonical whether to sort the piles into canonical order.
+   * @return the encoded position.
+   */
+  private static byte[] encode(byte[][] cascades, int[] cascadeLengths, byte[] opens,
+                               int[] foundationCounts, int[] foundationSuits, boolean canonical) {
+    int numCascades = cascadeLengths.length;
+    int numOpens = opens.length;
+    if (numCascades > 255 || numOpens > 255
+            || foundationCounts.length != 4 || foundationSuits.length != 4) {
+      throw new IllegalArgumentException("Error: Invalid Pile Size - Pack State");
+    }
+
+    int size = HEADER + numOpens + numCascades;
+    for (int i = 0; i < numCascades; i++) {
+      size += cascadeLengths[i];
+    }
+    byte[] data = new byte[size];
+    data[0] = (byte) numCascades;
+    data[1] = (byte) numOpens;
+
+    int counters = 0;
+    int suits = 0;
+    for (int i = 0; i < 4; i++) {
+      if (foundationCounts[i] < 0 || foundationCounts[i] > 13) {
+        throw new IllegalArgumentException("Error: Invalid Foundation Count - Pack State");
+      }
+      if (foundationCounts[i] == 0) {
+        continue;
+      }
+      // the canonical form keeps foundation piles in suit order
+      int pile = canonical ? foundationSuits[i] & 3 : i;
+      counters |= foundationCounts[i] << (4 * pile);
+      suits |= (foundationSuits[i] & 3) << (2 * pile);
+    }
+    if (canonical) {
+      suits = 0b11100100;
+    }
+    data[2] = (byte) counters;
+    data[3] = (byte) (counters >>> 8);
+    data[4] = (byte) suits;
+
+    int pos = HEADER;
+    System.arraycopy(opens, 0, data, pos, numOpens);
+    if (canonical) {
+      // sort with EMPTY (0xFF unsigned) last
+      sortUnsigned(data, pos, pos + numOpens);
+    }
+    pos += numOpens;
+
+    int[] order = new int[numCascades];
+    for (int i = 0; i < numCascades; i++) {
+      // insertion sort of the pile order, which is short
+      int j = i - 1;
+      while (canonical && j >= 0 && compareRuns(cascades[order[j]], cascadeLengths[order[j]],
+              cascades[i], cascadeLengths[i]) > 0) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = i;
+    }
+    for (int i = 0; i < numCascades; i++) {
+      int c = order[i];
+      int n = cascadeLengths[c];
+      data[pos++] = (byte) n;
+      System.arraycopy(cascades[c], 0, data, pos, n);
+      pos += n;
+    }
+    return data;
+  }
+
+  /**
+   * Insertion sort of a small byte range, comparing as unsigned values.
+   */
+  private static void sortUnsigned(byte[] a, int from, int to) {
+    for (int i = from + 1; i < to; i++) {
+      byte v = a[i];
+      int j = i - 1;
+      while (j >= from && (a[j] & 0xFF) > (v & 0xFF)) {
+        a[j + 1] = a[j];
+        j--;
+      }
+      a[j + 1] = v;
+    }
+  }
+
+  /**
+   * Lexicographic comparison of two card runs.
+   */
+  private static int compareRuns(byte[] a, int aLen, byte[] b, int bLen) {
+    int n = Math.min(aLen, bLen);
+    for (int i = 0; i < n; i++) {
+      if (a[i] != b[i]) {
+        return a[i] - b[i];
+      }
+    }
+    return aLen - bLen;
+  }
+
+  /**
+   * Get the canonical form of this position: open piles and cascade piles are sorted and each
+   * foundation pile is moved to the slot of its suit. Positions that differ only by the order of
+   * interchangeable piles share a canonical form.
+   *
+   * @return the canonical form of this position.
+   */
+  public PackedState canonical() {
+    int numCascades = getNumCascadePiles();
+    int numOpens = getNumOpenPiles();
+    byte[][] cascades = new byte[numCascades][];
+    int[] lengths = new int[numCascades];
+    for (int i = 0; i < numCascades; i++) {
+      int off = cascadeOffset(i);
+      lengths[i] = data[off - 1];
+      cascades[i] = Arrays.copyOfRange(data, off, off + lengths[i]);
+    }
+    byte[] opens = Arrays.copyOfRange(data, HEADER, HEADER + numOpens);
+    int[] counts = new int[4];
+    int[] suits = new int[4];
+    for (int i = 0; i < 4; i++) {
+      counts[i] = getNumCardsInFoundationPile(i);
+      suits[i] = getFoundationSuit(i);
+    }
+    return canonicalOf(cascades, lengths, opens, counts, suits);
+  }
+
+  /**
+   * Get the number of cascade piles.
+   *
+   * @return the number of cascade piles.
+   */
+  public int getNumCascadePiles() {
+    return data[0] & 0xFF;
+  }
+
+  /**
+   * Get the number of open piles.
+   *
+   * @return the number of open piles.
+   */
+  public int getNumOpenPiles() {
+    return data[1] & 0xFF;
+  }
+
+  /**
+   * Get the number of cards in a foundation pile.
+   *
+   * @param index the index of the foundation pile, in [0, 3].
+   * @return the number of cards in the pile.
+   */
+  public int getNumCardsInFoundationPile(int index) {
+    int counters = (data[2] & 0xFF) | (data[3] & 0xFF) << 8;
+    return (counters >>> (4 * index)) & 0xF;
+  }
+
+  /**
+   * Get the suit ordinal of a foundation pile. Only meaningful if the pile is not empty.
+   *
+   * @param index the index of the foundation pile, in [0, 3].
+   * @return the ordinal of the pile's suit.
+   */
+  public int getFoundationSuit(int index) {
+    return (data[4] >>> (2 * index)) & 3;
+  }
+
+  /**
+   * Get the card index in an open pile.
+   *
+   * @param index the index of the open pile.
+   * @return the card index, or EMPTY.
+   */
+  public byte getOpenCard(int index) {
+    return data[HEADER + index];
+  }
+
+  /**
+   * Get the number of cards in a cascade pile.
+   *
+   * @param index the index of the cascade pile.
+   * @return the number of cards in the pile.
+   */
+  public int getNumCardsInCascadePile(int index) {
+    return data[cascadeOffset(index) - 1];
+  }
+
+  /**
+   * Get a card index in a cascade pile.
+   *
+   * @param pileIndex the index of the cascade pile.
+   * @param cardIndex the index of the card in the pile, starting at the bottom.
+   * @return the card index.
+   */
+  public byte getCascadeCard(int pileIndex, int cardIndex) {
+    return data[cascadeOffset(pileIndex) + cardIndex];
+  }
+
+  /**
+   * Find the offset of the first card of a cascade pile.
+   *
+   * @param index the index of the cascade pile.
+   * @return the offset into data of the pile's first card.
+   */
+  private int cascadeOffset(int index) {
+    int pos = HEADER + getNumOpenPiles();
+    for (int i = 0; i < index; i++) {
+      pos += data[pos] + 1;
+    }
+    return pos + 1;
+  }
+
+  /**
+   * Get the number of bytes used by this encoding.
+   *
+   * @return the encoded size.
+   */
+  public int size() {
+    return data.length;
+  }
+
+  /**
+   * Copy the raw encoding into the given array.
+   *
+   * @return a copy of the encoding.
+   */
+  public byte[] toByteArray() {
+    return data.clone();
+  }
+
+  /**
+   * Decode a position previously produced by toByteArray.
+   *
+   * @param bytes the encoding.
+   * @return the decoded position.
+   * @throws IllegalArgumentException if the encoding is malformed.
+   */
+  public static PackedState fromByteArray(byte[] bytes) {
+    if (bytes.length < HEADER) {
+      throw new IllegalArgumentException("Error: Invalid Encoding - Unpack State");
+    }
+    int pos = HEADER + (bytes[1] & 0xFF);
+    for (int i = 0; i < (bytes[0] & 0xFF); i++) {
+      if (pos >= bytes.length || bytes[pos] < 0) {
+        throw new IllegalArgumentException("Error: Invalid Encoding - Unpack State");
+      }
+      pos += bytes[pos] + 1;
+    }
+    if (pos != bytes.length) {
+      throw new IllegalArgumentException("Error: Invalid Encoding - Unpack State");
+    }
+    return new PackedState(bytes.clone());
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof PackedState)) {
+      return false;
+    }
+    PackedState other = (PackedState) obj;
+    return hash == other.hash && Arrays.equals(data, other.data);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
@@ -0,0 +1,482 @@
+package cs3500.freecell.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cs3500.freecell.cards.Card;
+import cs3500.freecell.cards.ICard;
+import cs3500.freecell.model.multimove.MultiMoveFreecellModel;
+
+/**
+ * Encodes whole games, with their moves, to save them or send them elsewhere. A game is stored as
+ * the position it started from and the moves made since, at about one byte per move. Games are
+ * written at and read from the position of a ByteBuffer, which is left just after them, so several
+ * games can follow one another in a buffer; the buffer may be direct or mapped.
+ *
+ * <p>Format version 1, numbers big-endian:
+ * <pre>
+ * [0], [1]  'F', 'S'
+ * [2]       the version
+ * [3]       bits 0-1 how the game started (deal, deck or position), bit 2 set for a multi-move
+ *           game, bit 3 set if auto-play is on
+ * [4], [5]  the number of cascade and open piles
+ * then      deal: the deal number (see DealGenerator), 4 bytes
+ *           deck: the deck given to startGame, one byte per card (see Card.indexOf)
+ *           position: its length as a varint, then the position (see PackedState)
+ * then      as varints, the number of moves and how many of them are applied; the rest were
+ *           undone and can be redone
+ * then      the moves, in order
+ * </pre>
+ * Piles are numbered foundations first, then open piles, then cascade piles. A move of one card
+ * between piles numbered below 16 takes one byte: the source pile in the high 4 bits and the
+ * destination in the low 4. Bytes with equal halves are not moves: 0xEE is followed by such a
+ * byte and the number of cards, for a move of more than one card; 0xFF is followed by the move as
+ * the game recorded it (see JournalListener), 4 bytes, for any other move; and k * 0x11 for k up
+ * to 13 marks the next k + 1 moves as made by auto-play. A varint holds 7 bits per byte, low bits
+ * first, with the top bit set on every byte but the last.
+ */
+public final class SaveGameCodec {
+  /**
+   * The version of the format written by encode.
+   */
+  public static final int VERSION = 1;
+
+  // how the game started
+  private static final int DEAL = 0;
+  private static final int DECK = 1;
+  private static final int POSITION = 2;
+  // other flags
+  private static final int MULTIMOVE = 4;
+  private static final int AUTO_PLAY = 8;
+
+  private static final int BLOCK = 0xEE;
+  private static final int ESCAPE = 0xFF;
+  private static final PileType[] TYPES = PileType.values();
+  // the longest run of auto moves one marker covers
+  private static final int MAX_RUN = 14;
+
+  private SaveGameCodec() {
+  }
+
+  /**
+   * Write a started game. A game dealt from a deck is saved with the deck, and any other with the
+   * position it started from.
+   *
+   * @param game the game.
+   * @param out  where to write it.
+   * @throws IllegalArgumentException if an argument is null or the game has over 255 piles of a
+   *                                  type.
+   * @throws IllegalStateException if the game has not started.
+   * @throws java.nio.BufferOverflowException if the game does not fit (see maxEncodedSize).
+   */
+  public static void encode(AFreecellModel game, ByteBuffer out) {
+    encode(game, 0, out);
+  }
+
+  /**
+   * Write a started game that was dealt by startDeal, saving the deal number instead of the deck.
+   *
+   * @param game       the game.
+   * @param dealNumber the number it was dealt with.
+   * @param out        where to write it.
+   * @throws IllegalArgumentException if an argument is null, the game has over 255 piles of a
+   *                                  type or the game did not start with that deal.
+   * @throws IllegalStateException if the game has not started.
+   * @throws java.nio.BufferOverflowException if the game does not fit (see maxEncodedSize).
+   */
+  public static void encode(AFreecellModel game, long dealNumber, ByteBuffer out) {
+    if (game == null || out == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    if (!game.hasStarted) {
+      throw new IllegalStateException("Error: Game has not started - Encode");
+    }
+    int nCascades = game.getNumCascadePiles();
+    int nOpens = game.getNumOpenPiles();
+    if (nCascades > 255 || nOpens > 255) {
+      throw new IllegalArgumentException("Error: Too Many Piles - Encode");
+    }
+
+    int[] moves = new int[game.getJournal(new int[0])];
+    game.getJournal(moves);
+
+    // the position the game started from, found on a copy with its own journal; a fork would
+    // share the game's journal, and the game would copy all of it on its next move
+    AFreecellModel start = new SimpleFreecellModel();
+    start.restoreState(PackedState.of(game), moves, game.getMoveCount(), moves.length);
+    while (start.canUndo()) {
+      start.undo();
+    }
+    byte[] deck = dealtDeck(start);
+    if (dealNumber != 0) {
+      byte[] dealt = new byte[52];
+      DealGenerator.deal(dealNumber, dealt);
+      if (!Arrays.equals(deck, dealt)) {
+        throw new IllegalArgumentException("Error: Game Is Not Deal " + dealNumber);
+      }
+    }
+    int kind = deck == null ? POSITION : dealNumber != 0 ? DEAL : DECK;
+
+    out.put((byte) 'F');
+    out.put((byte) 'S');
+    out.put((byte) VERSION);
+    out.put((byte) (kind | (game instanceof MultiMoveFreecellModel ? MULTIMOVE : 0)
+            | (game.isAutoPlay() ? AUTO_PLAY : 0)));
+    out.put((byte) nCascades);
+    out.put((byte) nOpens);
+    if (kind == DEAL) {
+      putInt(out, (int) dealNumber);
+    } else if (kind == DECK) {
+      out.put(deck);
+    } else {
+      byte[] position = PackedState.of(start).toByteArray();
+      putVarint(out, position.length);
+      out.put(position);
+    }
+
+    putVarint(out, moves.length);
+    putVarint(out, game.getMoveCount());
+    int i = 0;
+    while (i < moves.length) {
+      if ((moves[i] & AFreecellModel.AUTO) != 0) {
+        int run = 1;
+        while (run < MAX_RUN && i + run < moves.length
+                && (moves[i + run] & AFreecellModel.AUTO) != 0) {
+          run++;
+        }
+        out.put((byte) ((run - 1) * 0x11));
+        for (int end = i + run; i < end; i++) {
+          putMove(out, moves[i], nOpens);
+        }
+      } else {
+        putMove(out, moves[i++], nOpens);
+      }
+    }
+  }
+
+  /**
+   * Get the most bytes encode can write for a game, which is far more than it usually does.
+   *
+   * @param game a started game.
+   * @return the size.
+   * @throws IllegalStateException if the game has not started.
+   */
+  public static int maxEncodedSize(AFreecellModel game) {
+    if (!game.hasStarted) {
+      throw new IllegalStateException("Error: Game has not started - Encode");
+    }
+    // the header, the largest start, two varints and, per move, a marker and an escaped move
+    return 6 + 5 + 5 + game.getNumOpenPiles() + game.getNumCascadePiles() + 52 + 10
+            + 6 * game.getJournal(new int[0]);
+  }
+
+  /**
+   * Read a game written by encode. Its position is checked to hold each card once and its moves
+   * to keep it that way, but the moves are trusted to follow the rules, as when they were encoded.
+   *
+   * @param in where to read it.
+   * @return the game, started, with its moves made and as many undone as when it was written.
+   * @throws IllegalArgumentException if the input is not a saved game, is of another version or
+   *                                  is cut short.
+   */
+  public static AFreecellModel decode(ByteBuffer in) {
+    if (in == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    try {
+      return read(in);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Error: Invalid Save Game - Cut Short");
+    }
+  }
+
+  private static AFreecellModel read(ByteBuffer in) {
+    if (in.get() != 'F' || in.get() != 'S') {
+      throw new IllegalArgumentException("Error: Invalid Save Game");
+    }
+    int version = in.get() & 0xFF;
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Error: Unsupported Save Game Version " + version);
+    }
+    int flags = in.get() & 0xFF;
+    int nCascades = in.get() & 0xFF;
+    int nOpens = in.get() & 0xFF;
+
+    FreecellModelCreator.GameType type = (flags & MULTIMOVE) != 0
+            ? FreecellModelCreator.GameType.MULTIMOVE : FreecellModelCreator.GameType.SINGLEMOVE;
+    AFreecellModel game = (AFreecellModel) FreecellModelCreator.create(type);
+    switch (flags & 3) {
+      case DEAL:
+        game.startDeal(getInt(in) & 0xFFFFFFFFL, nCascades, nOpens);
+        break;
+      case DECK:
+        List<ICard> deck = new ArrayList<ICard>(52);
+        for (int i = 0; i < 52; i++) {
+          int card = in.get() & 0xFF;
+          if (card >= 52) {
+            throw new IllegalArgumentException("Error: Invalid Save Game - No Such Card");
+          }
+          deck.add(Card.fromIndex(card));
+        }
+        game.startGame(deck, nCascades, nOpens, false);
+        break;
+      case POSITION:
+        byte[] position = new byte[getVarint(in)];
+        in.get(position);
+        PackedState state = PackedState.fromByteArray(position);
+        if (state.getNumCascadePiles() != nCascades || state.getNumOpenPiles() != nOpens) {
+          throw new IllegalArgumentException("Error: Invalid Save Game - Pile Count");
+        }
+        if (!isWholeDeck(state)) {
+          throw new IllegalArgumentException("Error: Invalid Save Game - Position");
+        }
+        game.restoreState(state);
+        break;
+      default:
+        throw new IllegalArgumentException("Error: Invalid Save Game");
+    }
+
+    int total = getVarint(in);
+    int applied = getVarint(in);
+    if (applied > total) {
+      throw new IllegalArgumentException("Error: Invalid Save Game - Move Count");
+    }
+    int auto = 0;
+    for (int i = 0; i < total; i++) {
+      int code = in.get() & 0xFF;
+      if (code < BLOCK && code >> 4 == (code & 15)) {
+        // auto moves follow another move, and are marked one run at a time
+        if (i == 0 || auto > 0) {
+          throw new IllegalArgumentException("Error: Invalid Save Game - Move " + i);
+        }
+        auto = (code >> 4) + 1;
+        code = in.get() & 0xFF;
+      }
+      int entry;
+      if (code == ESCAPE) {
+        entry = getInt(in) & ~AFreecellModel.AUTO;
+      } else if (code == BLOCK) {
+        code = in.get() & 0xFF;
+        int count = in.get() & 0xFF;
+        if (count > 52) {
+          throw new IllegalArgumentException("Error: Invalid Save Game - Move " + i);
+        }
+        entry = entry(code >> 4, nOpens, count, code & 15);
+      } else if (code >> 4 == (code & 15)) {
+        throw new IllegalArgumentException("Error: Invalid Save Game - Move " + i);
+      } else {
+        entry = entry(code >> 4, nOpens, 1, code & 15);
+      }
+      if (auto > 0) {
+        entry |= AFreecellModel.AUTO;
+        auto--;
+      }
+      if (!fits(game, entry)) {
+        throw new IllegalArgumentException("Error: Invalid Save Game - Move " + i);
+      }
+      game.applyRecorded(entry);
+    }
+    if (auto > 0) {
+      throw new IllegalArgumentException("Error: Invalid Save Game - Move " + total);
+    }
+
+    while (game.getMoveCount() > applied) {
+      game.undo();
+    }
+    if (game.getMoveCount() != applied) {
+      throw new IllegalArgumentException("Error: Invalid Save Game - Move Count");
+    }
+    game.setAutoPlay((flags & AUTO_PLAY) != 0);
+    return game;
+  }
+
+  /**
+   * Get the deck a position was dealt from by startGame, or null if it was not.
+   */
+  private static byte[] dealtDeck(AFreecellModel start) {
+    int nCascades = start.getNumCascadePiles();
+    for (int i = 0; i < 4; i++) {
+      if (start.pileSize(PileType.FOUNDATION, i) != 0) {
+        return null;
+      }
+    }
+    for (int i = 0; i < start.getNumOpenPiles(); i++) {
+      if (start.pileSize(PileType.OPEN, i) != 0) {
+        return null;
+      }
+    }
+    for (int i = 0; i < nCascades; i++) {
+      if (start.cascadeSize(i) != 52 / nCascades + (i < 52 % nCascades ? 1 : 0)) {
+        return null;
+      }
+    }
+    byte[] deck = new byte[52];
+    for (int i = 0; i < 52; i++) {
+      deck[i] = (byte) start.cascadeCard(i % nCascades, i / nCascades);
+    }
+    return deck;
+  }
+
+  /**
+   * Whether a position holds each of the 52 cards exactly once. restoreState trusts its position,
+   * but a saved one may be corrupt.
+   */
+  private static boolean isWholeDeck(PackedState state) {
+    long seen = 0;
+    int count = 0;
+    for (int i = 0; i < 4; i++) {
+      int size = state.getNumCardsInFoundationPile(i);
+      if (size > 13) {
+        return false;
+      }
+      for (int j = 0; j < size; j++) {
+        seen |= 1L << (j * 4 + state.getFoundationSuit(i));
+        count++;
+      }
+    }
+    for (int i = 0; i < state.getNumOpenPiles(); i++) {
+      int card = state.getOpenCard(i);
+      if (card != -1) {
+        if (card < 0 || card >= 52) {
+          return false;
+        }
+        seen |= 1L << card;
+        count++;
+      }
+    }
+    for (int i = 0; i < state.getNumCascadePiles(); i++) {
+      for (int j = 0; j < state.getNumCardsInCascadePile(i); j++) {
+        int card = state.getCascadeCard(i, j);
+        if (card < 0 || card >= 52) {
+          return false;
+        }
+        seen |= 1L << card;
+        count++;
+      }
+    }
+    // 52 cards covering the whole deck, so none is there twice
+    return count == 52 && seen == (1L << 52) - 1;
+  }
+
+  /**
+   * Write one move, without its auto-play flag.
+   */
+  private static void putMove(ByteBuffer out, int entry, int nOpens) {
+    int source = slot(entry & 3, (entry >>> 2) & 0xFF, nOpens);
+    int destination = slot((entry >>> 10) & 3, (entry >>> 12) & 0xFF, nOpens);
+    int count = (entry >>> 20) & 0x3F;
+    if (source >= 16 || destination >= 16 || source == destination) {
+      out.put((byte) ESCAPE);
+      putInt(out, entry & ~AFreecellModel.AUTO);
+    } else if (count == 1) {
+      out.put((byte) (source << 4 | destination));
+    } else {
+      out.put((byte) BLOCK);
+      out.put((byte) (source << 4 | destination));
+      out.put((byte) count);
+    }
+  }
+
+  /**
+   * Number a pile, foundations first, then open piles, then cascade piles.
+   */
+  private static int slot(int type, int pileNumber, int nOpens) {
+    switch (TYPES[type]) {
+      case FOUNDATION:
+        return pileNumber;
+      case OPEN:
+        return 4 + pileNumber;
+      default:
+        return 4 + nOpens + pileNumber;
+    }
+  }
+
+  /**
+   * Build a journal entry moving count cards between two numbered piles.
+   */
+  private static int entry(int source, int nOpens, int count, int destination) {
+    return type(source, nOpens).ordinal() | number(source, nOpens) << 2
+            | type(destination, nOpens).ordinal() << 10 | number(destination, nOpens) << 12
+            | count << 20;
+  }
+
+  private static PileType type(int slot, int nOpens) {
+    return slot < 4 ? PileType.FOUNDATION : slot < 4 + nOpens ? PileType.OPEN : PileType.CASCADE;
+  }
+
+  private static int number(int slot, int nOpens) {
+    return slot < 4 ? slot : slot < 4 + nOpens ? slot - 4 : slot - 4 - nOpens;
+  }
+
+  /**
+   * Whether a journal entry moves cards that are there to piles that can hold them, so that
+   * applying it leaves each card in the game once.
+   */
+  private static boolean fits(AFreecellModel game, int entry) {
+    if ((entry & 3) == 3 || (entry >>> 10 & 3) == 3) {
+      return false;
+    }
+    PileType source = TYPES[entry & 3];
+    int pileNumber = (entry >>> 2) & 0xFF;
+    PileType destination = TYPES[(entry >>> 10) & 3];
+    int destPileNumber = (entry >>> 12) & 0xFF;
+    int count = (entry >>> 20) & 0x3F;
+    if (pileNumber >= game.pileCount(source) || destPileNumber >= game.pileCount(destination)
+            || (source == destination && pileNumber == destPileNumber)
+            || count < 1 || count > game.pileSize(source, pileNumber)
+            || (count > 1 && source != PileType.CASCADE)) {
+      // only cascade piles hold runs of cards
+      return false;
+    }
+    switch (destination) {
+      case OPEN:
+        return count == 1 && game.pileSize(destination, destPileNumber) == 0;
+      case FOUNDATION:
+        // the next card of the pile's suit, as the foundation only holds its size and suit
+        int card = game.cardAt(source, pileNumber, game.pileSize(source, pileNumber) - 1);
+        int size = game.pileSize(destination, destPileNumber);
+        return count == 1 && card >> 2 == size
+                && (size == 0 || game.cardAt(destination, destPileNumber, 0) == (card & 3));
+      default:
+        return true;
+    }
+  }
+
+  private static void putInt(ByteBuffer out, int value) {
+    out.put((byte) (value >>> 24));
+    out.put((byte) (value >>> 16));
+    out.put((byte) (value >>> 8));
+    out.put((byte) value);
+  }
+
+  private static int getInt(ByteBuffer in) {
+    return (in.get() & 0xFF) << 24 | (in.get() & 0xFF) << 16 | (in.get() & 0xFF) << 8
+            | (in.get() & 0xFF);
+  }
+
+  private static void putVarint(ByteBuffer out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.put((byte) (value | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  private static int getVarint(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.get() & 0xFF;
+      value |= (b & 0x7F) << shift;
+      if (b < 0x80) {
+        if (value < 0) {
+          break;
+        }
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Error: Invalid Save Game - Number Too Large");
+  }
+}
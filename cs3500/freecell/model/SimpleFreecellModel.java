@@ -1,74 +1,227 @@
 package cs3500.freecell.model;
 
-import java.util.List;
-
-import cs3500.freecell.cards.ICard;
+import cs3500.freecell.cards.Card;
 
 /**
  * This class represents a game of Freecell.
  */
 public class SimpleFreecellModel extends AFreecellModel {
 
+  // top card of every pile (see Card.indexOf), or -1 if empty; reused by getLegalMoves
+  private int[] tops = new int[0];
+
   @Override
   public void move(PileType source, int pileNumber, int cardIndex,
                    PileType destination, int destPileNumber) {
+    MoveResult result = tryMove(source, pileNumber, cardIndex, destination, destPileNumber);
+    if (result != MoveResult.OK) {
+      throw moveError(result, source, pileNumber, cardIndex, destination, destPileNumber);
+    }
+  }
+
+  @Override
+  public MoveResult tryMove(PileType source, int pileNumber, int cardIndex,
+                            PileType destination, int destPileNumber) {
     // check if game has started
-    checkHasStarted("Error: Game has not started - Move");
+    if (!hasStarted) {
+      return MoveResult.NOT_STARTED;
+    }
+    if (!isPile(source, pileNumber)) {
+      return MoveResult.INVALID_PILE;
+    }
 
-    // find appropriate source and destination piles
-    List<ICard>[] src = getPile(source);
-    List<ICard>[] dest = getPile(destination);
+    // find appropriate source pile
+    int srcSize = pileSize(source, pileNumber);
 
     // cannot move a card if the source pile is empty
-    if (src[pileNumber].isEmpty()) {
-      throw new IllegalArgumentException("Error: Invalid Move - Empty Source Pile");
+    if (srcSize == 0) {
+      return MoveResult.EMPTY_SOURCE;
     }
     // only the last card in the pile can be moved
-    if (src[pileNumber].size() - 1 != cardIndex) {
-      throw new IllegalArgumentException("Error: Invalid Move - Source Card Not Tail");
+    if (srcSize - 1 != cardIndex) {
+      return MoveResult.NOT_TOP_CARD;
+    }
+    int sCard = cardAt(source, pileNumber, cardIndex);
+
+    if (!isPile(destination, destPileNumber)) {
+      return MoveResult.INVALID_PILE;
     }
-    ICard sCard = src[pileNumber].get(cardIndex);
+    int destSize = pileSize(destination, destPileNumber);
 
-    if (dest[destPileNumber].isEmpty()) {
+    if (destSize == 0) {
       // if dest is a foundation pile, only valid if source card is an Ace
       // if dest is not a foundation, always valid
-      if (destination == PileType.FOUNDATION && !sCard.getRank().equals("A")) {
-        throw new IllegalArgumentException("Error: Invalid Move - Cannot Place " + sCard +
-                " On Empty Pile (Dest: Foundation)");
+      if (destination == PileType.FOUNDATION && sCard >> 2 != 0) {
+        return MoveResult.FOUNDATION_NEEDS_ACE;
       }
     } else {
-      ICard dCard = dest[destPileNumber].get(dest[destPileNumber].size() - 1);
+      int dCard = cardAt(destination, destPileNumber, destSize - 1);
       switch (destination) {
         case OPEN:
           // open piles can only hold one card
-          throw new IllegalArgumentException("Error: Invalid Move - Destination Full (Dest: Open)");
+          return MoveResult.OPEN_FULL;
         case FOUNDATION:
           /*
            * Valid move if:
            * the cards are the same suit and the source card is one rank above the dest card
            */
-          if (!(dCard.getSuit().equals(sCard.getSuit())) || rankDif(sCard, dCard) != 1) {
-            throw new IllegalArgumentException("Error: Invalid Move - Cannot Place " + sCard +
-                    " on " + dCard + " (Dest: Foundation)");
+          if ((dCard & 3) != (sCard & 3) || (sCard >> 2) - (dCard >> 2) != 1) {
+            return MoveResult.FOUNDATION_MISMATCH;
           }
           break;
-        case CASCADE:
+        default:
           /*
            * Valid move if:
            * the cards are different colors and the source card is one rank below the dest card
            */
-          if (sameColor(dCard, sCard) || rankDif(dCard, sCard) != 1) {
-            throw new IllegalArgumentException("Error: Invalid Move - Cannot Place " + sCard +
-                    " on " + dCard + " (Dest: Cascade)");
+          if (isBlack(dCard) == isBlack(sCard) || (dCard >> 2) - (sCard >> 2) != 1) {
+            return MoveResult.CASCADE_MISMATCH;
           }
           break;
-        default:
-          // throw error if invalid PileType
-          throw new IllegalArgumentException("Error: Invalid PileType");
       }
     }
 
     // remove card from source and add to destination pile
-    dest[destPileNumber].add(src[pileNumber].remove(cardIndex));
+    transfer(source, pileNumber, 1, destination, destPileNumber);
+    return MoveResult.OK;
+  }
+
+  /**
+   * Whether the given pile exists.
+   */
+  protected boolean isPile(PileType type, int pileNumber) {
+    return type != null && pileNumber >= 0 && pileNumber < pileCount(type);
+  }
+
+  /**
+   * Build the exception move throws for a rejected move. Only called once a move has failed, so
+   * the cost of describing it is not paid by tryMove.
+   *
+   * @param result why the move was rejected.
+   * @return the exception to throw.
+   */
+  protected RuntimeException moveError(MoveResult result, PileType source, int pileNumber,
+                                       int cardIndex, PileType destination, int destPileNumber) {
+    switch (result) {
+      case NOT_STARTED:
+        return new IllegalStateException("Error: Game has not started - Move");
+      case INVALID_PILE:
+        return new IllegalArgumentException("Error: Invalid Move - No Such Pile");
+      case INVALID_CARD:
+        return new IllegalArgumentException("Error: Invalid Move - No Such Card");
+      case EMPTY_SOURCE:
+        return new IllegalArgumentException("Error: Invalid Move - Empty Source Pile");
+      case NOT_TOP_CARD:
+        return new IllegalArgumentException("Error: Invalid Move - Source Card Not Tail");
+      case TOO_MANY_CARDS:
+        return new IllegalArgumentException("Error - Impossible to move this many cards");
+      case BLOCK_COLOR:
+        return new IllegalArgumentException("Error - Invalid card block for multi-move (color)");
+      case BLOCK_RANK:
+        return new IllegalArgumentException("Error - Invalid card block for multi-move (rank)");
+      default:
+        break;
+    }
+
+    int destSize = pileSize(destination, destPileNumber);
+    Card sCard = Card.fromIndex(cardAt(source, pileNumber, cardIndex));
+    Card dCard = destSize == 0 ? null
+            : Card.fromIndex(cardAt(destination, destPileNumber, destSize - 1));
+    switch (result) {
+      case FOUNDATION_NEEDS_ACE:
+        return new IllegalArgumentException("Error: Invalid Move - Cannot Place " + sCard +
+                " On Empty Pile (Dest: Foundation)");
+      case OPEN_FULL:
+        return new IllegalArgumentException("Error: Invalid Move - Destination Full (Dest: Open)");
+      case FOUNDATION_MISMATCH:
+        return new IllegalArgumentException("Error: Invalid Move - Cannot Place " + sCard +
+                " on " + dCard + " (Dest: Foundation)");
+      case CASCADE_MISMATCH:
+        return new IllegalArgumentException("Error: Invalid Move - Cannot Place " + sCard +
+                " on " + dCard + " (Dest: Cascade)");
+      case BLOCK_MISMATCH:
+        return new IllegalArgumentException("Error: Invalid Move - Cannot Place " + sCard +
+                " On Empty Pile (Dest: Foundation)");
+      default:
+        return new IllegalArgumentException("Error: Invalid Move");
+    }
+  }
+
+  @Override
+  protected AFreecellModel newGame() {
+    return new SimpleFreecellModel();
+  }
+
+  @Override
+  public int getLegalMoves(int[] buffer) {
+    if (!hasStarted) {
+      return 0;
+    }
+
+    // piles are numbered foundations first, then open piles, then cascade piles
+    int nPiles = 4 + numOpenPiles + numCascadePiles;
+    if (tops.length < nPiles) {
+      tops = new int[nPiles];
+    }
+    for (int p = 0; p < nPiles; p++) {
+      int size = pileSize(typeAt(p), numberAt(p));
+      tops[p] = size == 0 ? -1 : cardAt(typeAt(p), numberAt(p), size - 1);
+    }
+
+    // only the top card of a pile can be moved, onto any other pile that takes it
+    int count = 0;
+    for (int p = 0; p < nPiles; p++) {
+      int card = tops[p];
+      if (card < 0) {
+        continue;
+      }
+      int cardIndex = pileSize(typeAt(p), numberAt(p)) - 1;
+      for (int q = 0; q < nPiles; q++) {
+        if (q != p && canPlace(card, q, tops[q])) {
+          count = addMove(buffer, count, p, cardIndex, q);
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Whether a single card can be placed on a pile, by the rules of move.
+   *
+   * @param card the index of the card (see Card.indexOf).
+   * @param q    the pile, numbered as in getLegalMoves.
+   * @param top  the index of the top card of that pile, or -1 if it is empty.
+   */
+  private boolean canPlace(int card, int q, int top) {
+    if (q < 4) {
+      // foundation: an ace on an empty pile, or the next card of the same suit
+      return top < 0 ? card >> 2 == 0 : (top & 3) == (card & 3) && card >> 2 == (top >> 2) + 1;
+    }
+    if (q < 4 + numOpenPiles) {
+      return top < 0;
+    }
+    // cascade: anything on an empty pile, or a card of the other color one rank lower
+    return top < 0 || (isBlack(top) != isBlack(card) && top >> 2 == (card >> 2) + 1);
+  }
+
+  /**
+   * Write a move between two piles, numbered as in getLegalMoves, to the buffer if it fits.
+   *
+   * @return the number of moves found, including this one.
+   */
+  protected int addMove(int[] buffer, int count, int p, int cardIndex, int q) {
+    if (count < buffer.length) {
+      buffer[count] = Moves.of(typeAt(p), numberAt(p), cardIndex, typeAt(q), numberAt(q));
+    }
+    return count + 1;
+  }
+
+  private PileType typeAt(int p) {
+    return p < 4 ? PileType.FOUNDATION
+            : p < 4 + numOpenPiles ? PileType.OPEN : PileType.CASCADE;
+  }
+
+  private int numberAt(int p) {
+    return p < 4 ? p : p < 4 + numOpenPiles ? p - 4 : p - 4 - numOpenPiles;
   }
 }
\ No newline at end of file
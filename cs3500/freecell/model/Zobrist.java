@@ -0,0 +1,87 @@
+package cs3500.freecell.model;
+
+import java.util.SplittableRandom;
+
+import cs3500.freecell.cards.Card;
+import cs3500.freecell.cards.ICard;
+
+/**
+ * Zobrist keys for freecell positions. The hash of a position is the xor of one key per card:
+ * a card in a cascade pile is keyed by itself and the card directly beneath it (or the bottom of
+ * the pile), a card in an open pile or foundation pile by itself alone. This describes exactly
+ * which runs of cards exist without saying which pile holds them, so positions that only differ by
+ * the order of the cascade, open or foundation piles share a hash. Moving a run between cascade
+ * piles only changes the key of its bottom card.
+ */
+final class Zobrist {
+  // keys are fixed so that hashes are stable across runs
+  private static final long SEED = 0x5EED_F4EE_CE11L;
+
+  private static final long[] CASCADE = new long[52 * 53];
+  private static final long[] OPEN = new long[52];
+  private static final long[] FOUNDATION = new long[52];
+
+  static {
+    SplittableRandom random = new SplittableRandom(SEED);
+    for (int i = 0; i < CASCADE.length; i++) {
+      CASCADE[i] = random.nextLong();
+    }
+    for (int i = 0; i < 52; i++) {
+      OPEN[i] = random.nextLong();
+      FOUNDATION[i] = random.nextLong();
+    }
+  }
+
+  private Zobrist() {
+  }
+
+  /**
+   * Key of a card in a pile.
+   *
+   * @param type  the type of the pile.
+   * @param card  the index of the card (see Card.indexOf).
+   * @param below the index of the card beneath it in a cascade pile, or -1 if there is none.
+   *              Ignored for other pile types.
+   * @return the key.
+   */
+  static long key(PileType type, int card, int below) {
+    switch (type) {
+      case CASCADE:
+        return CASCADE[card * 53 + below + 1];
+      case OPEN:
+        return OPEN[card];
+      default:
+        return FOUNDATION[card];
+    }
+  }
+
+  /**
+   * Compute the hash of a started game from scratch.
+   *
+   * @param state the game.
+   * @return the hash of its position.
+   */
+  static long hash(FreecellModelState<ICard> state) {
+    long h = 0;
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < state.getNumCardsInFoundationPile(i); j++) {
+        h ^= FOUNDATION[Card.indexOf(state.getFoundationCardAt(i, j))];
+      }
+    }
+    for (int i = 0; i < state.getNumOpenPiles(); i++) {
+      ICard card = state.getOpenCardAt(i);
+      if (card != null) {
+        h ^= OPEN[Card.indexOf(card)];
+      }
+    }
+    for (int i = 0; i < state.getNumCascadePiles(); i++) {
+      int below = -1;
+      for (int j = 0; j < state.getNumCardsInCascadePile(i); j++) {
+        int card = Card.indexOf(state.getCascadeCardAt(i, j));
+        h ^= CASCADE[card * 53 + below + 1];
+        below = card;
+      }
+    }
+    return h;
+  }
+}
@@ -1,8 +1,8 @@
 package cs3500.freecell.model.multimove;
 
-import java.util.List;
-
-import cs3500.freecell.cards.ICard;
+import cs3500.freecell.model.AFreecellModel;
+import cs3500.freecell.model.MoveResult;
+import cs3500.freecell.model.Moves;
 import cs3500.freecell.model.PileType;
 import cs3500.freecell.model.SimpleFreecellModel;
 
@@ -10,88 +10,246 @@ import cs3500.freecell.model.SimpleFreecellModel;
  * This class represents a game of Freecell.
  */
 public class MultiMoveFreecellModel extends SimpleFreecellModel {
+  // scratch space for expandMove: cascade pile sizes as the moves are made, the empty open
+  // piles and the empty cascade piles
+  private int[] sizes = new int[0];
+  private int[] cells = new int[0];
+  private int[] spaces = new int[0];
+  private int nCells;
 
   @Override
-  public void move(PileType source, int pileNumber, int cardIndex,
-                   PileType destination, int destPileNumber) {
+  public MoveResult tryMove(PileType source, int pileNumber, int cardIndex,
+                            PileType destination, int destPileNumber) {
     // if source pile and destination pile are not cascade piles, we cannot make a multi-move
     if (source != PileType.CASCADE || destination != PileType.CASCADE) {
-      super.move(source, pileNumber, cardIndex, destination, destPileNumber);
-      return;
+      return super.tryMove(source, pileNumber, cardIndex, destination, destPileNumber);
     }
     // check if game has started
-    checkHasStarted("Error: Game has not started - Move");
-
-    // find appropriate source and destination piles
-    List<ICard>[] src = getPile(source);
-    List<ICard>[] dest = getPile(destination);
+    if (!hasStarted) {
+      return MoveResult.NOT_STARTED;
+    }
+    if (!isPile(source, pileNumber)) {
+      return MoveResult.INVALID_PILE;
+    }
 
     // number of cards to move
-    int nCards = src[pileNumber].size() - cardIndex;
+    int srcSize = cascadeSize(pileNumber);
+    int nCards = srcSize - cardIndex;
 
     // if nCards < 2, not a multi-move
     if (nCards < 2) {
-      super.move(source, pileNumber, cardIndex, destination, destPileNumber);
-      return;
+      return super.tryMove(source, pileNumber, cardIndex, destination, destPileNumber);
     }
     // check that multi-move of nCards is possible
-    if (nCards > (countEmptyOpenPiles() + 1) * Math.pow(2, countEmptyCascadePiles())) {
-      throw new IllegalArgumentException("Error - Impossible to move this many cards");
+    if (nCards > capacity()) {
+      return MoveResult.TOO_MANY_CARDS;
     }
 
+    if (!isPile(destination, destPileNumber)) {
+      return MoveResult.INVALID_PILE;
+    }
+    int destSize = cascadeSize(destPileNumber);
+
     // check that source card can be placed on dest card
-    if (!dest[destPileNumber].isEmpty()) {
-      ICard sCard = src[pileNumber].get(cardIndex);
-      ICard dCard = dest[destPileNumber].get(dest[destPileNumber].size() - 1);
-      if (sameColor(sCard, dCard) || rankDif(dCard, sCard) != 1) {
-        throw new IllegalArgumentException("Error: Invalid Move - Cannot Place " + sCard +
-                " On Empty Pile (Dest: Foundation)");
+    if (destSize > 0) {
+      if (cardIndex < 0) {
+        return MoveResult.INVALID_CARD;
+      }
+      int sCard = cascadeCard(pileNumber, cardIndex);
+      int dCard = cascadeCard(destPileNumber, destSize - 1);
+      if (isBlack(sCard) == isBlack(dCard) || (dCard >> 2) - (sCard >> 2) != 1) {
+        return MoveResult.BLOCK_MISMATCH;
       }
     }
 
     // check that card block being moved is valid
-    for (int i = src[pileNumber].size() - 1; i > cardIndex; i--) {
-      if (sameColor(src[pileNumber].get(i), src[pileNumber].get(i - 1))) {
-        throw new IllegalArgumentException("Error - Invalid card block for multi-move (color)");
+    for (int i = srcSize - 1; i > Math.max(cardIndex, 0); i--) {
+      int card = cascadeCard(pileNumber, i);
+      int below = cascadeCard(pileNumber, i - 1);
+      if (isBlack(card) == isBlack(below)) {
+        return MoveResult.BLOCK_COLOR;
       }
-      if (rankDif(src[pileNumber].get(i - 1), src[pileNumber].get(i)) != 1) {
-        throw new IllegalArgumentException("Error - Invalid card block for multi-move (rank)");
+      if ((below >> 2) - (card >> 2) != 1) {
+        return MoveResult.BLOCK_RANK;
       }
     }
+    if (cardIndex < 0) {
+      return MoveResult.INVALID_CARD;
+    }
 
     // move all cards
-    for (int i = 0; i < nCards; i++) {
-      dest[destPileNumber].add(src[pileNumber].remove(cardIndex));
+    transfer(source, pileNumber, nCards, destination, destPileNumber);
+    return MoveResult.OK;
+  }
+
+  @Override
+  protected AFreecellModel newGame() {
+    return new MultiMoveFreecellModel();
+  }
+
+  @Override
+  public int getLegalMoves(int[] buffer) {
+    int count = super.getLegalMoves(buffer);
+    if (!hasStarted) {
+      return count;
     }
+
+    // blocks of two or more cards between cascade piles
+    int capacity = capacity();
+    int firstCascade = 4 + numOpenPiles;
+    for (int i = 0; i < numCascadePiles; i++) {
+      int size = cascadeSize(i);
+
+      // length of the valid block at the top of the pile, as checked by move
+      int run = size == 0 ? 0 : 1;
+      while (run < size) {
+        int card = cascadeCard(i, size - run);
+        int below = cascadeCard(i, size - run - 1);
+        if (isBlack(card) == isBlack(below) || (below >> 2) - (card >> 2) != 1) {
+          break;
+        }
+        run++;
+      }
+      int longest = Math.min(run, capacity);
+      if (longest < 2) {
+        continue;
+      }
+
+      for (int j = 0; j < numCascadePiles; j++) {
+        int destSize = cascadeSize(j);
+        if (j == i) {
+          continue;
+        }
+        if (destSize == 0) {
+          for (int n = 2; n <= longest; n++) {
+            count = addMove(buffer, count, firstCascade + i, size - n, firstCascade + j);
+          }
+        } else {
+          // only one block can go on a given card
+          int dCard = cascadeCard(j, destSize - 1);
+          int n = (dCard >> 2) - (cascadeCard(i, size - 1) >> 2);
+          if (n >= 2 && n <= longest && isBlack(cascadeCard(i, size - n)) != isBlack(dCard)) {
+            count = addMove(buffer, count, firstCascade + i, size - n, firstCascade + j);
+          }
+        }
+      }
+    }
+    return count;
   }
 
   /**
-   * Counts the number of open piles that are empty.
+   * The most cards that can be moved at once: one more than the number of empty open piles,
+   * doubled for each empty cascade pile. Saturates at 64, well above the 52 cards in a game.
    *
-   * @return the number of empty open piles.
+   * @return the capacity.
    */
-  private int countEmptyOpenPiles() {
-    int count = 0;
+  private int capacity() {
+    return (countEmptyOpenPiles() + 1) << Math.min(countEmptyCascadePiles(), 6);
+  }
+
+  /**
+   * Expand a move into single card moves that have the same effect, using the empty open and
+   * cascade piles as temporary space. A block is moved by recursively moving its top half to an
+   * empty cascade pile, its bottom half to the destination and the top half on top of it; a
+   * block that fits in the empty open piles plus one is moved through them. The move is not
+   * validated.
+   *
+   * <p>A block moved onto an empty cascade pile may not be possible one card at a time, since
+   * move counts the destination among the empty cascade piles.
+   *
+   * @param move   a legal move of the current position (see Moves).
+   * @param buffer where to write the single card moves, in order (see Moves).
+   * @return the number of single card moves, which may be more than were written, or -1 if the
+   *         block cannot be moved one card at a time.
+   */
+  public int expandMove(int move, int[] buffer) {
+    checkHasStarted("Error: Game has not started - Expand Move");
+    int pileNumber = Moves.getPileNumber(move);
+    if (Moves.getSource(move) != PileType.CASCADE || Moves.getDestination(move) != PileType.CASCADE
+            || cascadeSize(pileNumber) - Moves.getCardIndex(move) < 2) {
+      if (buffer.length > 0) {
+        buffer[0] = move;
+      }
+      return 1;
+    }
+    int destPileNumber = Moves.getDestPileNumber(move);
+
+    // the piles used as temporary space, and the size of each cascade pile as moves are made
+    if (sizes.length < numCascadePiles) {
+      sizes = new int[numCascadePiles];
+      cells = new int[numOpenPiles];
+      spaces = new int[numCascadePiles];
+    } else if (cells.length < numOpenPiles) {
+      cells = new int[numOpenPiles];
+    }
+    nCells = 0;
     for (int i = 0; i < numOpenPiles; i++) {
-      if (openPiles[i].isEmpty()) {
-        count++;
+      if (pileSize(PileType.OPEN, i) == 0) {
+        cells[nCells++] = i;
       }
     }
-    return count;
+    int nSpaces = 0;
+    for (int i = 0; i < numCascadePiles; i++) {
+      sizes[i] = cascadeSize(i);
+      if (sizes[i] == 0 && i != destPileNumber) {
+        spaces[nSpaces++] = i;
+      }
+    }
+
+    int nCards = sizes[pileNumber] - Moves.getCardIndex(move);
+    return expand(nCards, pileNumber, destPileNumber, nSpaces, buffer, 0);
   }
 
   /**
-   * Counts the number of cascade piles that are empty.
+   * Write the single card moves that move the top n cards of one cascade pile onto another.
    *
-   * @return the number of empty cascade piles.
+   * @param nSpaces the number of empty cascade piles that may be used, the first in spaces.
+   * @param count   the number of moves written so far.
+   * @return the number of moves written, or -1 if the cards cannot be moved.
    */
-  private int countEmptyCascadePiles() {
-    int count = 0;
-    for (int i = 0; i < numCascadePiles; i++) {
-      if (cascadePiles[i].isEmpty()) {
-        count++;
+  private int expand(int n, int from, int to, int nSpaces, int[] buffer, int count) {
+    if (n <= nCells + 1) {
+      // the top n - 1 cards to the open piles, the bottom card across, then the rest back
+      for (int i = 0; i < n - 1; i++) {
+        count = single(buffer, count, PileType.CASCADE, from, PileType.OPEN, cells[i]);
       }
+      count = single(buffer, count, PileType.CASCADE, from, PileType.CASCADE, to);
+      for (int i = n - 2; i >= 0; i--) {
+        count = single(buffer, count, PileType.OPEN, cells[i], PileType.CASCADE, to);
+      }
+      return count;
+    }
+    if (nSpaces == 0) {
+      return -1;
+    }
+
+    // each half must fit through the piles left once the top half occupies a cascade pile
+    int space = spaces[nSpaces - 1];
+    int half = Math.min(n - 1, (nCells + 1) << Math.min(nSpaces - 1, 6));
+    count = expand(n - half, from, space, nSpaces - 1, buffer, count);
+    if (count >= 0) {
+      count = expand(half, from, to, nSpaces - 1, buffer, count);
+    }
+    if (count >= 0) {
+      count = expand(n - half, space, to, nSpaces - 1, buffer, count);
     }
     return count;
   }
+
+  /**
+   * Write one single card move to the buffer if it fits, and update the cascade pile sizes.
+   *
+   * @return the number of moves written, including this one.
+   */
+  private int single(int[] buffer, int count, PileType source, int pileNumber,
+                     PileType destination, int destPileNumber) {
+    int cardIndex = source == PileType.CASCADE ? --sizes[pileNumber] : 0;
+    if (destination == PileType.CASCADE) {
+      sizes[destPileNumber]++;
+    }
+    if (count < buffer.length) {
+      buffer[count] = Moves.of(source, pileNumber, cardIndex, destination, destPileNumber);
+    }
+    return count + 1;
+  }
 }
@@ -0,0 +1,137 @@
+package cs3500.freecell.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.CharBuffer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded in-memory pipe of chars. One side appends, the other reads. Appending blocks while
+ * the pipe is full and reading blocks while it is empty, so a slow reader holds back the writer
+ * instead of letting the buffer grow. After close, reads drain what is left and then report the
+ * end of input, and appends fail.
+ */
+public final class CharPipe implements Readable, Appendable, Closeable {
+  private final char[] ring;
+  private int head = 0;
+  private int size = 0;
+  private boolean closed = false;
+
+  // a lock rather than synchronized, so blocked virtual threads do not pin their carrier
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+
+  /**
+   * Constructor for CharPipe.
+   *
+   * @param capacity the most chars the pipe holds at once.
+   * @throws IllegalArgumentException if the capacity is not positive.
+   */
+  public CharPipe(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Error: Invalid Capacity");
+    }
+    this.ring = new char[capacity];
+  }
+
+  @Override
+  public int read(CharBuffer cb) throws IOException {
+    lock.lock();
+    try {
+      while (size == 0 && !closed) {
+        await(notEmpty);
+      }
+      if (size == 0) {
+        return -1;
+      }
+      int n = Math.min(size, cb.remaining());
+      for (int i = 0; i < n; i++) {
+        cb.put(ring[head]);
+        head = head + 1 == ring.length ? 0 : head + 1;
+      }
+      size -= n;
+      notFull.signalAll();
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Appendable append(CharSequence csq) throws IOException {
+    CharSequence text = csq == null ? "null" : csq;
+    return append(text, 0, text.length());
+  }
+
+  @Override
+  public Appendable append(CharSequence csq, int start, int end) throws IOException {
+    CharSequence text = csq == null ? "null" : csq;
+    int i = start;
+    lock.lock();
+    try {
+      while (i < end) {
+        while (size == ring.length && !closed) {
+          await(notFull);
+        }
+        if (closed) {
+          throw new IOException("IOException: Pipe Closed");
+        }
+        // copy as much as fits, then let the reader at it
+        for (int tail = (head + size) % ring.length; i < end && size < ring.length; size++) {
+          ring[tail] = text.charAt(i++);
+          tail = tail + 1 == ring.length ? 0 : tail + 1;
+        }
+        notEmpty.signalAll();
+      }
+      return this;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Appendable append(char c) throws IOException {
+    lock.lock();
+    try {
+      while (size == ring.length && !closed) {
+        await(notFull);
+      }
+      if (closed) {
+        throw new IOException("IOException: Pipe Closed");
+      }
+      ring[(head + size) % ring.length] = c;
+      size++;
+      notEmpty.signalAll();
+      return this;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Close the pipe. Blocked readers and writers wake up.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static void await(Condition condition) throws InterruptedIOException {
+    try {
+      condition.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("IOException: Pipe Interrupted");
+    }
+  }
+}
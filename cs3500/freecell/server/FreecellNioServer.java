@@ -0,0 +1,356 @@
+package cs3500.freecell.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import cs3500.freecell.cards.ICard;
+import cs3500.freecell.controller.MoveInterpreter;
+import cs3500.freecell.model.FreecellModel;
+import cs3500.freecell.model.FreecellModelCreator;
+import cs3500.freecell.view.FreecellTextView;
+import cs3500.freecell.view.FreecellView;
+
+/**
+ * Serves games over the same text protocol as SimpleFreecellController, to any number of
+ * connections from a single thread. A selector tells the server which connections have input;
+ * the input is split into tokens as it arrives and each token is fed to the connection's
+ * MoveInterpreter. A connection sees exactly what SimpleFreecellController would write for the
+ * same input. Output is encoded into a direct buffer per connection, and a connection that does
+ * not read its output is not read from until it does, so buffers stay bounded.
+ */
+public class FreecellNioServer implements Closeable {
+  // a connection is not read from while this much of its output is waiting to be sent
+  private static final int OUTPUT_LIMIT = 8192;
+  private static final int MAX_TOKEN = 256;
+  private static final int BUFFER_SIZE = 4096;
+
+  private final FreecellModelCreator.GameType type;
+  private final int numCascades;
+  private final int numOpens;
+  private final boolean shuffle;
+
+  private final Selector selector;
+  private ServerSocketChannel server;
+  private volatile boolean closed = false;
+  private int connections = 0;
+
+  // shared by all connections, since only the selector thread uses them
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+  private final CharBuffer chunk = CharBuffer.allocate(BUFFER_SIZE / 4);
+
+  /**
+   * Constructor for FreecellNioServer.
+   *
+   * @param type        the type of game each connection plays.
+   * @param numCascades the number of cascade piles.
+   * @param numOpens    the number of open piles.
+   * @param shuffle     whether to shuffle the deck of each game.
+   * @throws IOException if no selector can be opened.
+   */
+  public FreecellNioServer(FreecellModelCreator.GameType type, int numCascades, int numOpens,
+                           boolean shuffle) throws IOException {
+    if (type == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    this.type = type;
+    this.numCascades = numCascades;
+    this.numOpens = numOpens;
+    this.shuffle = shuffle;
+    this.selector = Selector.open();
+  }
+
+  /**
+   * Accept connections on a local port. Connections are served by run.
+   *
+   * @param address the local address to bind, e.g. InetAddress.getLoopbackAddress().
+   * @param port    the port, or 0 for any free port.
+   * @return the port actually bound.
+   * @throws IOException if the port cannot be bound.
+   * @throws IllegalStateException if the server is already bound.
+   */
+  public int bind(InetAddress address, int port) throws IOException {
+    if (server != null) {
+      throw new IllegalStateException("Error: Already Bound");
+    }
+    server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(address, port));
+    server.configureBlocking(false);
+    server.register(selector, SelectionKey.OP_ACCEPT);
+    return ((InetSocketAddress) server.getLocalAddress()).getPort();
+  }
+
+  /**
+   * Serve connections until close is called. Every connection is closed on return.
+   *
+   * @throws IOException if selecting fails.
+   */
+  public void run() throws IOException {
+    try {
+      while (!closed) {
+        selector.select();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+            continue;
+          }
+          Connection connection = (Connection) key.attachment();
+          try {
+            if (key.isReadable()) {
+              connection.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+              connection.flush();
+            }
+          } catch (IOException | IllegalStateException e) {
+            connection.close();
+          }
+        }
+      }
+    } catch (ClosedSelectorException e) {
+      // closed while selecting
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() instanceof Connection) {
+          ((Connection) key.attachment()).close();
+        }
+      }
+      selector.close();
+      if (server != null) {
+        server.close();
+      }
+    }
+  }
+
+  /**
+   * @return the number of open connections. Only meaningful on the thread that calls run.
+   */
+  public int getConnectionCount() {
+    return connections;
+  }
+
+  /**
+   * Stop serving. The thread in run closes every connection and returns.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    selector.wakeup();
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = server.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    Connection connection = new Connection(channel);
+    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    connections++;
+    try {
+      connection.start();
+    } catch (IOException e) {
+      connection.close();
+    }
+  }
+
+  /**
+   * One game played over one connection.
+   */
+  private final class Connection {
+    private final SocketChannel channel;
+    private SelectionKey key;
+
+    private final FreecellModel<ICard> model = FreecellModelCreator.create(type);
+    private final StringBuilder out = new StringBuilder();
+    private final FreecellView view = new FreecellTextView(model, out);
+    private final MoveInterpreter moves = new MoveInterpreter(model, view);
+
+    // bytes that are not UTF-8 are read as U+FFFD, which is never part of a valid token
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE / 8);
+    private final CharBuffer input = CharBuffer.allocate(BUFFER_SIZE / 8);
+    private final StringBuilder token = new StringBuilder();
+    // bytes of out that have been encoded but not sent yet, ready to be written
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // how much of out has been encoded
+    private int sent = 0;
+    private boolean inputEnded = false;
+    private boolean ending = false;
+
+    Connection(SocketChannel channel) {
+      this.channel = channel;
+      writeBuffer.flip();
+      input.flip();
+    }
+
+    /**
+     * Start the game and send the first board.
+     */
+    void start() throws IOException {
+      try {
+        model.startGame(model.getDeck(), numCascades, numOpens, shuffle);
+        renderBoard();
+      } catch (IllegalArgumentException e) {
+        out.append("Could not start game.");
+        ending = true;
+      }
+      flush();
+    }
+
+    /**
+     * Read what has arrived and play the complete tokens in it.
+     *
+     * @throws IllegalStateException if the read buffer is full and none of it can be decoded.
+     */
+    void read() throws IOException {
+      int n = channel.read(readBuffer);
+      readBuffer.flip();
+      input.compact();
+      CoderResult result = decoder.decode(readBuffer, input, false);
+      input.flip();
+      if (result.isUnderflow() && readBuffer.position() == 0
+              && readBuffer.limit() == readBuffer.capacity()) {
+        // the selector would keep reporting the connection readable without reading anything
+        throw new IllegalStateException("Error: Undecodable Input");
+      }
+      readBuffer.compact();
+
+      inputEnded = n < 0;
+      play();
+      flush();
+    }
+
+    /**
+     * Play the tokens in input, stopping early if too much output is waiting.
+     */
+    private void play() {
+      while (input.hasRemaining() && !ending && out.length() - sent < OUTPUT_LIMIT) {
+        char c = input.get();
+        if (!Character.isWhitespace(c)) {
+          if (token.length() == MAX_TOKEN) {
+            throw new IllegalStateException("Error: Token Too Long");
+          }
+          token.append(c);
+        } else if (token.length() > 0) {
+          handle();
+        }
+      }
+
+      if (inputEnded && !input.hasRemaining() && !ending) {
+        // the last token needs no whitespace after it
+        if (token.length() > 0) {
+          handle();
+        }
+        // SimpleFreecellController gives up when its input ends
+        ending = true;
+      }
+    }
+
+    /**
+     * Play the current token, as one turn of SimpleFreecellController.playGame would.
+     */
+    private void handle() {
+      MoveInterpreter.Status status = moves.accept(token);
+      token.setLength(0);
+      if (status == MoveInterpreter.Status.QUIT) {
+        ending = true;
+      } else if (status == MoveInterpreter.Status.MOVED) {
+        renderBoard();
+        if (model.isGameOver()) {
+          out.append("Game over.");
+          ending = true;
+        }
+      }
+    }
+
+    private void renderBoard() {
+      try {
+        view.renderBoard();
+      } catch (IOException e) {
+        throw new IllegalStateException("Error: Unable to render board");
+      }
+      out.append('\n');
+    }
+
+    /**
+     * Send as much pending output as the channel takes, then decide what to wait for next.
+     */
+    void flush() throws IOException {
+      while (true) {
+        if (!writeBuffer.hasRemaining()) {
+          if (sent == out.length()) {
+            break;
+          }
+          // encode the next chunk of out
+          int n = Math.min(chunk.capacity(), out.length() - sent);
+          chunk.clear();
+          out.getChars(sent, sent + n, chunk.array(), 0);
+          chunk.limit(n);
+          writeBuffer.clear();
+          encoder.reset();
+          encoder.encode(chunk, writeBuffer, false);
+          sent += chunk.position();
+          writeBuffer.flip();
+        }
+        if (channel.write(writeBuffer) == 0) {
+          break;
+        }
+      }
+
+      boolean pending = writeBuffer.hasRemaining() || sent < out.length();
+      if (!pending) {
+        out.setLength(0);
+        sent = 0;
+        if (ending) {
+          close();
+          return;
+        }
+        if (input.hasRemaining()) {
+          // input left over from a read that stopped early for output
+          play();
+          if (out.length() > 0) {
+            flush();
+            return;
+          }
+        }
+      }
+      key.interestOps(pending ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    void close() {
+      if (!channel.isOpen()) {
+        return;
+      }
+      connections--;
+      key.cancel();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // nothing left to do with it
+      }
+    }
+  }
+}
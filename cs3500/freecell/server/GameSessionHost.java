@@ -0,0 +1,360 @@
+package cs3500.freecell.server;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cs3500.freecell.cards.ICard;
+import cs3500.freecell.controller.SimpleFreecellController;
+import cs3500.freecell.model.FreecellModel;
+import cs3500.freecell.model.FreecellModelCreator;
+
+/**
+ * Hosts many independent games at once. Each session is its own model and
+ * SimpleFreecellController, playing a freshly shuffled deck, and runs on its own thread: a
+ * virtual thread when the runtime has them, otherwise a pooled platform thread. Sessions attach
+ * to sockets accepted by listen, or to bounded in-memory pipes from openPipe. Output goes through
+ * a buffer of bounded size, flushed after every line. A session that reads no input for longer
+ * than the idle timeout is dropped.
+ */
+public class GameSessionHost implements Closeable {
+
+  private final FreecellModelCreator.GameType type;
+  private final int numCascades;
+  private final int numOpens;
+  private final int bufferSize;
+  private final long idleTimeoutNanos;
+
+  private final ExecutorService sessionThreads = newSessionExecutor();
+  private final ScheduledExecutorService reaper;
+  private final Map<Long, Session> sessions = new ConcurrentHashMap<Long, Session>();
+  private final AtomicLong nextId = new AtomicLong();
+  private volatile ServerSocket server;
+  private volatile boolean closed = false;
+
+  /**
+   * Constructor for GameSessionHost.
+   *
+   * @param type              the type of game each session plays.
+   * @param numCascades       the number of cascade piles.
+   * @param numOpens          the number of open piles.
+   * @param bufferSize        the size in chars of each session's input and output buffers.
+   * @param idleTimeoutMillis how long a session may wait for input before it is dropped.
+   * @throws IllegalArgumentException if the type is null or a size or the timeout is invalid.
+   */
+  public GameSessionHost(FreecellModelCreator.GameType type, int numCascades, int numOpens,
+                         int bufferSize, long idleTimeoutMillis) {
+    if (type == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    if (numCascades < 4 || numOpens < 1) {
+      throw new IllegalArgumentException("Error: Invalid Pile Size");
+    }
+    if (bufferSize < 1 || idleTimeoutMillis < 1) {
+      throw new IllegalArgumentException("Error: Invalid Buffer Size or Timeout");
+    }
+    this.type = type;
+    this.numCascades = numCascades;
+    this.numOpens = numOpens;
+    this.bufferSize = bufferSize;
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+
+    this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "freecell-session-reaper");
+      t.setDaemon(true);
+      return t;
+    });
+    long period = Math.max(10, idleTimeoutMillis / 4);
+    reaper.scheduleAtFixedRate(this::dropIdleSessions, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Get an executor that runs each task on a new virtual thread. Virtual threads only exist from
+   * Java 21 on, so on older runtimes this falls back to a pool of daemon platform threads.
+   */
+  private static ExecutorService newSessionExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+              .invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      return Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "freecell-session");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+
+  /**
+   * Accept connections on a local port, starting a session for each one.
+   *
+   * @param address the local address to bind, e.g. InetAddress.getLoopbackAddress().
+   * @param port    the port, or 0 for any free port.
+   * @return the port actually bound.
+   * @throws IOException if the port cannot be bound.
+   * @throws IllegalStateException if the host is already listening or has been closed.
+   */
+  public int listen(InetAddress address, int port) throws IOException {
+    checkOpen();
+    if (server != null) {
+      throw new IllegalStateException("Error: Already Listening");
+    }
+    ServerSocket socket = new ServerSocket();
+    socket.bind(new InetSocketAddress(address, port));
+    server = socket;
+    sessionThreads.execute(() -> acceptLoop(socket));
+    return socket.getLocalPort();
+  }
+
+  private void acceptLoop(ServerSocket socket) {
+    while (!socket.isClosed()) {
+      Socket client;
+      try {
+        client = socket.accept();
+      } catch (IOException e) {
+        // the server socket was closed
+        return;
+      }
+      try {
+        Writer out = new OutputStreamWriter(
+                new BufferedOutputStream(client.getOutputStream(), bufferSize),
+                StandardCharsets.UTF_8);
+        start(new Session(nextId.incrementAndGet(), null, null, client),
+                new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8),
+                new LineFlushingWriter(out));
+      } catch (IOException | IllegalStateException e) {
+        closeQuietly(client);
+      }
+    }
+  }
+
+  /**
+   * Start a session connected to a pair of in-memory pipes, each holding at most bufferSize
+   * chars. Commands appended to the session's input are played, and its output can be read
+   * from the session's output.
+   *
+   * @return the session.
+   * @throws IllegalStateException if the host has been closed.
+   */
+  public Session openPipe() {
+    CharPipe commands = new CharPipe(bufferSize);
+    CharPipe output = new CharPipe(bufferSize);
+    return start(new Session(nextId.incrementAndGet(), commands, output, commands, output),
+            commands, output);
+  }
+
+  /**
+   * Start a session reading from in and writing to out. Closing the session must wake it up if
+   * it is blocked on in or out.
+   */
+  private Session start(Session session, Readable in, Appendable out) {
+    checkOpen();
+    sessions.put(session.id, session);
+    try {
+      sessionThreads.execute(() -> run(session, in, out));
+    } catch (RuntimeException e) {
+      session.close();
+      throw new IllegalStateException("Error: Host Closed");
+    }
+    return session;
+  }
+
+  private void run(Session session, Readable in, Appendable out) {
+    try {
+      FreecellModel<ICard> model = FreecellModelCreator.create(type);
+      // every read counts as activity, so only sessions waiting on their player are dropped
+      Readable tracked = cb -> {
+        int n = in.read(cb);
+        session.lastActivity = System.nanoTime();
+        return n;
+      };
+      new SimpleFreecellController(model, tracked, out)
+              .playGame(model.getDeck(), numCascades, numOpens, true);
+    } catch (IllegalStateException e) {
+      // the input ended, or the session was dropped and its input or output closed
+    } finally {
+      // the last message of a game has no newline
+      if (out instanceof Flushable) {
+        try {
+          ((Flushable) out).flush();
+        } catch (IOException e) {
+          // the session is over either way
+        }
+      }
+      session.close();
+    }
+  }
+
+  private void dropIdleSessions() {
+    long now = System.nanoTime();
+    for (Session session : sessions.values()) {
+      if (now - session.lastActivity > idleTimeoutNanos) {
+        session.close();
+      }
+    }
+  }
+
+  /**
+   * @return the number of sessions that have not ended yet.
+   */
+  public int getSessionCount() {
+    return sessions.size();
+  }
+
+  /**
+   * Stop accepting connections and end every session.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (server != null) {
+      closeQuietly(server);
+    }
+    reaper.shutdownNow();
+    for (Session session : sessions.values()) {
+      session.close();
+    }
+    sessionThreads.shutdown();
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Error: Host Closed");
+    }
+  }
+
+  private static void closeQuietly(Closeable c) {
+    try {
+      c.close();
+    } catch (IOException e) {
+      // nothing left to do with it
+    }
+  }
+
+  /**
+   * One game hosted by a GameSessionHost.
+   */
+  public final class Session implements Closeable {
+    private final long id;
+    private final CharPipe input;
+    private final CharPipe output;
+    private final Closeable[] resources;
+    private final CountDownLatch ended = new CountDownLatch(1);
+    private volatile long lastActivity = System.nanoTime();
+
+    /**
+     * @param resources what to close when the session ends or is dropped.
+     */
+    private Session(long id, CharPipe input, CharPipe output, Closeable... resources) {
+      this.id = id;
+      this.input = input;
+      this.output = output;
+      this.resources = resources;
+    }
+
+    /**
+     * @return the id of this session, unique within its host.
+     */
+    public long getId() {
+      return id;
+    }
+
+    /**
+     * Get where to write the player's commands, for a session from openPipe.
+     *
+     * @return the input pipe, or null if the session is attached to a socket.
+     */
+    public Appendable getInput() {
+      return input;
+    }
+
+    /**
+     * Get where to read the game's output, for a session from openPipe.
+     *
+     * @return the output pipe, or null if the session is attached to a socket.
+     */
+    public Readable getOutput() {
+      return output;
+    }
+
+    /**
+     * @return whether the session has not ended yet.
+     */
+    public boolean isOpen() {
+      return ended.getCount() > 0;
+    }
+
+    /**
+     * Wait for the session to end.
+     *
+     * @param timeoutMillis the longest time to wait.
+     * @return whether the session ended in time.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitEnd(long timeoutMillis) throws InterruptedException {
+      return ended.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * End the session, closing its input and output.
+     */
+    @Override
+    public void close() {
+      sessions.remove(id);
+      for (Closeable resource : resources) {
+        closeQuietly(resource);
+      }
+      ended.countDown();
+    }
+  }
+
+  /**
+   * A Writer that flushes whenever a line is complete, so players see each board and message as
+   * soon as it is rendered while the underlying buffer stays bounded.
+   */
+  private static final class LineFlushingWriter extends Writer {
+    private final Writer out;
+
+    LineFlushingWriter(Writer out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      out.write(cbuf, off, len);
+      for (int i = off + len - 1; i >= off; i--) {
+        if (cbuf[i] == '\n') {
+          out.flush();
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package cs3500.freecell.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import cs3500.freecell.cards.ICard;
+import cs3500.freecell.model.FreecellModel;
+import cs3500.freecell.model.FreecellModelCreator;
+import cs3500.freecell.model.PackedState;
+import cs3500.freecell.model.multimove.MultiMoveFreecellModel;
+
+/**
+ * Best-first freecell solver. The most promising position found so far (see SearchState.score)
+ * is always expanded next, cards that can never be needed again are played to the foundations
+ * automatically, and every visited position is kept in a transposition table keyed by its
+ * canonical PackedState, so positions that only differ by the order of cascade, open or
+ * foundation piles are explored once. Solutions are found quickly but are not the shortest.
+ */
+public class FreecellSolver {
+  private final long maxNodes;
+  private final long timeLimitMillis;
+
+  /**
+   * Constructor.
+   *
+   * @param maxNodes        the maximum number of positions to explore, or 0 for no limit.
+   * @param timeLimitMillis the maximum duration of a search in milliseconds, or 0 for no limit.
+   */
+  public FreecellSolver(long maxNodes, long timeLimitMillis) {
+    if (maxNodes < 0 || timeLimitMillis < 0) {
+      throw new IllegalArgumentException("Error: Negative Solver Budget");
+    }
+    this.maxNodes = maxNodes;
+    this.timeLimitMillis = timeLimitMillis;
+  }
+
+  /**
+   * Default Constructor. Explores at most 1,000,000 positions for at most 60 seconds.
+   */
+  public FreecellSolver() {
+    this(1_000_000, 60_000);
+  }
+
+  /**
+   * Solve a started game from its current position. The game is not modified. Block moves are
+   * only used if the game is a MultiMoveFreecellModel.
+   *
+   * @param model the game to solve.
+   * @return the result of the search.
+   * @throws IllegalStateException if the game has not started.
+   */
+  public SolverResult solve(FreecellModel<ICard> model) {
+    return solve(PackedState.of(model), model instanceof MultiMoveFreecellModel);
+  }
+
+  /**
+   * Solve the game that would be dealt from the given deck, without shuffling.
+   *
+   * @param deck        the deck to be dealt.
+   * @param numCascades the number of cascade piles.
+   * @param numOpens    the number of open piles.
+   * @param type        the type of game, which decides whether block moves may be used.
+   * @return the result of the search.
+   * @throws IllegalArgumentException if the deck or the pile counts are invalid.
+   */
+  public SolverResult solve(List<ICard> deck, int numCascades, int numOpens,
+                            FreecellModelCreator.GameType type) {
+    FreecellModel<ICard> model = FreecellModelCreator.create(type);
+    model.startGame(deck, numCascades, numOpens, false);
+    return solve(model);
+  }
+
+  /**
+   * Solve the given position.
+   *
+   * @param state     the position to solve.
+   * @param multiMove whether block moves between cascade piles may be used.
+   * @return the result of the search.
+   */
+  public SolverResult solve(PackedState state, boolean multiMove) {
+    long start = System.currentTimeMillis();
+    Search search = new Search(state, multiMove, start);
+    SolverResult.Status status = search.run();
+    List<SolverMove> moves = status == SolverResult.Status.SOLVED
+            ? search.solutionMoves() : new ArrayList<SolverMove>();
+    return new SolverResult(status, moves, search.nodes, System.currentTimeMillis() - start);
+  }
+
+  /**
+   * A position reached by the search, linked to the position it was reached from.
+   */
+  private static final class Node {
+    private final PackedState state;
+    private final Node parent;
+    private final int move;
+    private final int score;
+    private final int depth;
+
+    Node(PackedState state, Node parent, int move, int score, int depth) {
+      this.state = state;
+      this.parent = parent;
+      this.move = move;
+      this.score = score;
+      this.depth = depth;
+    }
+  }
+
+  /**
+   * State of one best-first search.
+   */
+  private class Search {
+    private final PackedState root;
+    private final boolean multiMove;
+    private final long start;
+    private final Set<PackedState> visited = new HashSet<PackedState>();
+    private final PriorityQueue<Node> open = new PriorityQueue<Node>(1024, (a, b) ->
+            a.score != b.score ? Integer.compare(a.score, b.score)
+                    : Integer.compare(b.depth, a.depth));
+
+    // moves applied to the position being expanded, including automatic foundation moves
+    private int[] path = new int[64];
+    private int pathLength = 0;
+    private int[] moves = new int[0];
+
+    private long nodes = 0;
+    private Node solution = null;
+
+    Search(PackedState root, boolean multiMove, long start) {
+      this.root = root;
+      this.multiMove = multiMove;
+      this.start = start;
+    }
+
+    /**
+     * Run the search, leaving the solved position in solution if one is found.
+     */
+    SolverResult.Status run() {
+      SearchState state = new SearchState(root, multiMove);
+      autoPlay(state);
+      if (state.isSolved()) {
+        solution = new Node(root, null, -1, 0, 0);
+        return SolverResult.Status.SOLVED;
+      }
+      moves = new int[state.maxMoves()];
+      visited.add(state.key());
+      open.add(new Node(pack(state), null, -1, 0, 0));
+
+      while (!open.isEmpty()) {
+        if (outOfBudget()) {
+          return SolverResult.Status.ABORTED;
+        }
+        Node node = open.poll();
+        state = new SearchState(node.state, multiMove);
+        int n = state.generate(moves, 0);
+        for (int i = 0; i < n; i++) {
+          pathLength = 0;
+          push(moves[i]);
+          state.apply(moves[i]);
+          autoPlay(state);
+          nodes++;
+
+          if (state.isSolved()) {
+            solution = new Node(null, node, moves[i], 0, node.depth + 1);
+            return SolverResult.Status.SOLVED;
+          }
+          if (visited.add(state.key())) {
+            open.add(new Node(pack(state), node, moves[i], state.score(), node.depth + 1));
+          }
+          while (pathLength > 0) {
+            state.undo(path[--pathLength]);
+          }
+        }
+      }
+      return SolverResult.Status.UNSOLVABLE;
+    }
+
+    private PackedState pack(SearchState state) {
+      return PackedState.of(state.cascades, state.cascadeLengths, state.opens,
+              state.foundationCounts, state.foundationSuits);
+    }
+
+    /**
+     * Rebuild the moves from the root to the solution, including automatic foundation moves.
+     */
+    List<SolverMove> solutionMoves() {
+      int[] chosen = new int[solution.depth];
+      for (Node n = solution; n.parent != null; n = n.parent) {
+        chosen[n.depth - 1] = n.move;
+      }
+      SearchState state = new SearchState(root, multiMove);
+      pathLength = 0;
+      autoPlay(state);
+      for (int m : chosen) {
+        push(m);
+        state.apply(m);
+        autoPlay(state);
+      }
+      return new SearchState(root, multiMove).toMoves(path, pathLength);
+    }
+
+    /**
+     * Play every safe card to the foundations.
+     */
+    private void autoPlay(SearchState state) {
+      int move = state.findSafeFoundationMove();
+      while (move != -1) {
+        push(move);
+        state.apply(move);
+        move = state.findSafeFoundationMove();
+      }
+    }
+
+    private void push(int move) {
+      if (pathLength == path.length) {
+        path = Arrays.copyOf(path, path.length * 2);
+      }
+      path[pathLength++] = move;
+    }
+
+    private boolean outOfBudget() {
+      if (maxNodes > 0 && nodes >= maxNodes) {
+        return true;
+      }
+      return timeLimitMillis > 0 && System.currentTimeMillis() - start >= timeLimitMillis;
+    }
+  }
+}
@@ -0,0 +1,331 @@
+package cs3500.freecell.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import cs3500.freecell.cards.ICard;
+import cs3500.freecell.model.FreecellModel;
+import cs3500.freecell.model.PackedState;
+import cs3500.freecell.model.multimove.MultiMoveFreecellModel;
+
+/**
+ * Multi-core freecell solver. Each worker runs a depth-first search with candidate moves ordered
+ * by SearchState.score, and hands the untried siblings of its current position to the
+ * ForkJoinPool whenever the pool runs short of work, so idle workers steal whole subtrees.
+ * All workers share one transposition table of canonical PackedStates, and the first worker to
+ * find a solution cancels the others. Positions are only shared as immutable PackedStates; each
+ * worker searches its own mutable SearchState.
+ */
+public class ParallelFreecellSolver {
+  private final ForkJoinPool pool;
+  private final long maxNodes;
+  private final long timeLimitMillis;
+
+  /**
+   * Constructor.
+   *
+   * @param pool            the pool to run the search on.
+   * @param maxNodes        the maximum number of positions to explore, or 0 for no limit.
+   * @param timeLimitMillis the maximum duration of a search in milliseconds, or 0 for no limit.
+   */
+  public ParallelFreecellSolver(ForkJoinPool pool, long maxNodes, long timeLimitMillis) {
+    if (pool == null) {
+      throw new IllegalArgumentException("Error: Null Pool");
+    }
+    if (maxNodes < 0 || timeLimitMillis < 0) {
+      throw new IllegalArgumentException("Error: Negative Solver Budget");
+    }
+    this.pool = pool;
+    this.maxNodes = maxNodes;
+    this.timeLimitMillis = timeLimitMillis;
+  }
+
+  /**
+   * Default Constructor. Uses the common pool and explores at most 4,000,000 positions for at
+   * most 60 seconds.
+   */
+  public ParallelFreecellSolver() {
+    this(ForkJoinPool.commonPool(), 4_000_000, 60_000);
+  }
+
+  /**
+   * Solve a started game from its current position. The game is not modified. Block moves are
+   * only used if the game is a MultiMoveFreecellModel.
+   *
+   * @param model the game to solve.
+   * @return the result of the search.
+   * @throws IllegalStateException if the game has not started.
+   */
+  public SolverResult solve(FreecellModel<ICard> model) {
+    return solve(PackedState.of(model), model instanceof MultiMoveFreecellModel);
+  }
+
+  /**
+   * Solve the given position.
+   *
+   * @param state     the position to solve.
+   * @param multiMove whether block moves between cascade piles may be used.
+   * @return the result of the search.
+   */
+  public SolverResult solve(PackedState state, boolean multiMove) {
+    Search search = new Search(multiMove, System.currentTimeMillis());
+    pool.invoke(new Explore(search, state, new int[0]));
+
+    SolverResult.Status status;
+    List<SolverMove> moves = new ArrayList<SolverMove>();
+    int[] path = search.solution.get();
+    if (path != null) {
+      status = SolverResult.Status.SOLVED;
+      moves = new SearchState(state, multiMove).toMoves(path, path.length);
+    } else if (search.aborted) {
+      status = SolverResult.Status.ABORTED;
+    } else {
+      status = SolverResult.Status.UNSOLVABLE;
+    }
+    return new SolverResult(status, moves, search.nodes.get(),
+            System.currentTimeMillis() - search.start);
+  }
+
+  /**
+   * State shared by every worker of one search.
+   */
+  private class Search {
+    private final boolean multiMove;
+    private final long start;
+    private final Set<PackedState> visited = ConcurrentHashMap.newKeySet(1 << 16);
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicReference<int[]> solution = new AtomicReference<int[]>();
+    private volatile boolean stop = false;
+    private volatile boolean aborted = false;
+
+    Search(boolean multiMove, long start) {
+      this.multiMove = multiMove;
+      this.start = start;
+    }
+
+    /**
+     * Record a solution and cancel every worker. Only the first solution is kept.
+     */
+    void solved(int[] path) {
+      solution.compareAndSet(null, path);
+      stop = true;
+    }
+
+    /**
+     * Count explored positions and cancel every worker once the budget runs out.
+     */
+    boolean charge(long n) {
+      long total = nodes.addAndGet(n);
+      if ((maxNodes > 0 && total >= maxNodes) || (timeLimitMillis > 0
+              && System.currentTimeMillis() - start >= timeLimitMillis)) {
+        aborted = true;
+        stop = true;
+      }
+      return stop;
+    }
+  }
+
+  /**
+   * Depth-first search of the subtree below one position.
+   */
+  private class Explore extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private static final int BATCH = 256;
+
+    private final Search search;
+    private final PackedState from;
+    // moves from the root of the search to from
+    private final int[] prefix;
+
+    private SearchState state;
+    private int[] path;
+    private int pathLength;
+    private int[] moves = new int[1024];
+    private int[] frameEnd = new int[128];
+    private int[] frameNext = new int[128];
+    private int[] frameMark = new int[128];
+    private int[] scores = new int[64];
+    private final List<Explore> forked = new ArrayList<Explore>();
+
+    Explore(Search search, PackedState from, int[] prefix) {
+      this.search = search;
+      this.from = from;
+      this.prefix = prefix;
+    }
+
+    @Override
+    protected void compute() {
+      state = new SearchState(from, search.multiMove);
+      path = Arrays.copyOf(prefix, prefix.length + 256);
+      pathLength = prefix.length;
+
+      if (prefix.length == 0) {
+        autoPlay();
+        if (!search.visited.add(state.key())) {
+          return;
+        }
+      }
+      if (state.isSolved()) {
+        search.solved(Arrays.copyOf(path, pathLength));
+        return;
+      }
+
+      long pending = 0;
+      int depth = 0;
+      openFrame(depth);
+      while (depth >= 0 && !search.stop) {
+        if (frameNext[depth] == frameEnd[depth]) {
+          depth--;
+          if (depth >= 0) {
+            rewind(frameMark[depth]);
+          }
+          continue;
+        }
+        if (frameEnd[depth] - frameNext[depth] > 1 && getSurplusQueuedTaskCount() < 2) {
+          split(depth);
+        }
+
+        int move = moves[frameNext[depth]++];
+        int mark = pathLength;
+        push(move);
+        state.apply(move);
+        autoPlay();
+        if (++pending == BATCH) {
+          pending = 0;
+          if (search.charge(BATCH)) {
+            break;
+          }
+        }
+
+        if (!search.visited.add(state.key())) {
+          rewind(mark);
+          continue;
+        }
+        if (state.isSolved()) {
+          search.solved(Arrays.copyOf(path, pathLength));
+          break;
+        }
+        ensureFrames(depth + 1);
+        frameMark[depth] = mark;
+        depth++;
+        openFrame(depth);
+      }
+      search.charge(pending);
+
+      for (Explore task : forked) {
+        task.join();
+      }
+    }
+
+    /**
+     * Hand every untried move of frame d but the next one to other workers.
+     */
+    private void split(int d) {
+      for (int i = frameNext[d] + 1; i < frameEnd[d]; i++) {
+        int mark = pathLength;
+        push(moves[i]);
+        state.apply(moves[i]);
+        autoPlay();
+        if (state.isSolved()) {
+          search.solved(Arrays.copyOf(path, pathLength));
+        } else if (search.visited.add(state.key())) {
+          Explore task = new Explore(search, PackedState.of(state.cascades,
+                  state.cascadeLengths, state.opens, state.foundationCounts,
+                  state.foundationSuits), Arrays.copyOf(path, pathLength));
+          task.fork();
+          forked.add(task);
+        }
+        rewind(mark);
+      }
+      frameEnd[d] = frameNext[d] + 1;
+    }
+
+    /**
+     * Generate the candidate moves of the current position as frame d, best first.
+     */
+    private void openFrame(int d) {
+      int start = d == 0 ? 0 : frameEnd[d - 1];
+      int need = start + state.maxMoves();
+      if (need > moves.length) {
+        moves = Arrays.copyOf(moves, Math.max(need, moves.length * 2));
+      }
+      frameNext[d] = start;
+      frameEnd[d] = start + state.generate(moves, start);
+      order(start, frameEnd[d]);
+    }
+
+    /**
+     * Sort moves[from, to) by the score of the position each leads to.
+     */
+    private void order(int from, int to) {
+      int n = to - from;
+      if (scores.length < n) {
+        scores = new int[Math.max(n, scores.length * 2)];
+      }
+      for (int i = 0; i < n; i++) {
+        int mark = pathLength;
+        push(moves[from + i]);
+        state.apply(moves[from + i]);
+        autoPlay();
+        scores[i] = state.score();
+        rewind(mark);
+      }
+      for (int i = 1; i < n; i++) {
+        int m = moves[from + i];
+        int sc = scores[i];
+        int j = i - 1;
+        while (j >= 0 && scores[j] > sc) {
+          moves[from + j + 1] = moves[from + j];
+          scores[j + 1] = scores[j];
+          j--;
+        }
+        moves[from + j + 1] = m;
+        scores[j + 1] = sc;
+      }
+    }
+
+    private void ensureFrames(int d) {
+      if (d >= frameEnd.length) {
+        int size = frameEnd.length * 2;
+        frameEnd = Arrays.copyOf(frameEnd, size);
+        frameNext = Arrays.copyOf(frameNext, size);
+        frameMark = Arrays.copyOf(frameMark, size);
+      }
+    }
+
+    /**
+     * Play every safe card to the foundations.
+     */
+    private void autoPlay() {
+      int move = state.findSafeFoundationMove();
+      while (move != -1) {
+        push(move);
+        state.apply(move);
+        move = state.findSafeFoundationMove();
+      }
+    }
+
+    private void push(int move) {
+      if (pathLength == path.length) {
+        path = Arrays.copyOf(path, path.length * 2);
+      }
+      path[pathLength++] = move;
+    }
+
+    /**
+     * Undo moves until the path has the given length.
+     */
+    private void rewind(int length) {
+      while (pathLength > length) {
+        state.undo(path[--pathLength]);
+      }
+    }
+  }
+}
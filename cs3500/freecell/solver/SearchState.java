@@ -0,0 +1,573 @@
+package cs3500.freecell.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cs3500.freecell.model.PackedState;
+import cs3500.freecell.model.PileType;
+
+/**
+ * Mutable position used by the solvers. Cards are indices in [0, 51] (see Card.indexOf) and
+ * moves are packed into ints so that a search can apply and undo them without allocating.
+ * Moves follow the rules of SimpleFreecellModel, except that a run of cards may move between
+ * cascade piles as a block. With multiMove the block follows the rules of MultiMoveFreecellModel;
+ * otherwise it is limited to what can be moved one card at a time through empty piles, and it is
+ * expanded into those single card moves when the solution is reported.
+ */
+final class SearchState {
+  static final int OPEN = 0;
+  static final int CASCADE = 1;
+  static final int FOUNDATION = 2;
+
+  final int numCascades;
+  final int numOpens;
+  final boolean multiMove;
+
+  final byte[][] cascades;
+  final int[] cascadeLengths;
+  final byte[] opens;
+  final int[] foundationCounts;
+  final int[] foundationSuits;
+  // foundation pile holding each suit, or -1
+  private final int[] suitPile;
+
+  /**
+   * Constructor. Copies the given position.
+   *
+   * @param state     the position to search from.
+   * @param multiMove whether block moves between cascade piles are allowed.
+   */
+  SearchState(PackedState state, boolean multiMove) {
+    this.numCascades = state.getNumCascadePiles();
+    this.numOpens = state.getNumOpenPiles();
+    this.multiMove = multiMove;
+
+    cascades = new byte[numCascades][52];
+    cascadeLengths = new int[numCascades];
+    opens = new byte[numOpens];
+    foundationCounts = new int[4];
+    foundationSuits = new int[4];
+    suitPile = new int[] {-1, -1, -1, -1};
+
+    for (int i = 0; i < numCascades; i++) {
+      cascadeLengths[i] = state.getNumCardsInCascadePile(i);
+      for (int j = 0; j < cascadeLengths[i]; j++) {
+        cascades[i][j] = state.getCascadeCard(i, j);
+      }
+    }
+    for (int i = 0; i < numOpens; i++) {
+      opens[i] = state.getOpenCard(i);
+    }
+    for (int i = 0; i < 4; i++) {
+      foundationCounts[i] = state.getNumCardsInFoundationPile(i);
+      foundationSuits[i] = state.getFoundationSuit(i);
+      if (foundationCounts[i] > 0) {
+        suitPile[foundationSuits[i]] = i;
+      }
+    }
+  }
+
+  /**
+   * Pack a move into an int.
+   * Bits 0-1 source type, 2-9 source pile, 10-11 destination type, 12-19 destination pile,
+   * 20-25 index of the first moved card, 26-31 number of cards moved.
+   */
+  static int encode(int srcType, int srcPile, int cardIndex, int count,
+                    int destType, int destPile) {
+    return srcType | srcPile << 2 | destType << 10 | destPile << 12
+            | cardIndex << 20 | count << 26;
+  }
+
+  static int srcType(int move) {
+    return move & 3;
+  }
+
+  static int srcPile(int move) {
+    return (move >>> 2) & 0xFF;
+  }
+
+  static int destType(int move) {
+    return (move >>> 10) & 3;
+  }
+
+  static int destPile(int move) {
+    return (move >>> 12) & 0xFF;
+  }
+
+  static int cardIndex(int move) {
+    return (move >>> 20) & 0x3F;
+  }
+
+  static int count(int move) {
+    return move >>> 26;
+  }
+
+  static int rank(int card) {
+    return (card >> 2) + 1;
+  }
+
+  static int suit(int card) {
+    return card & 3;
+  }
+
+  static boolean isBlack(int card) {
+    int s = card & 3;
+    return s == 0 || s == 3;
+  }
+
+  /**
+   * Whether every card is on the foundation piles.
+   */
+  boolean isSolved() {
+    return foundationCounts[0] + foundationCounts[1] + foundationCounts[2]
+            + foundationCounts[3] == 52;
+  }
+
+  /**
+   * Number of cards on the foundation pile of the given suit.
+   */
+  int foundationOf(int suit) {
+    int pile = suitPile[suit];
+    return pile < 0 ? 0 : foundationCounts[pile];
+  }
+
+  /**
+   * Foundation pile the given card can be played on, or -1 if it cannot be played.
+   */
+  int foundationTarget(int card) {
+    int s = suit(card);
+    int pile = suitPile[s];
+    if (pile >= 0) {
+      return foundationCounts[pile] == rank(card) - 1 ? pile : -1;
+    }
+    if (rank(card) != 1) {
+      return -1;
+    }
+    for (int i = 0; i < 4; i++) {
+      if (foundationCounts[i] == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Whether a playable card can go to its foundation without ever being needed again: both
+   * opposite-color cards one rank lower are already on the foundations.
+   */
+  boolean isSafeToPlay(int card) {
+    int r = rank(card);
+    if (r <= 2) {
+      return true;
+    }
+    if (isBlack(card)) {
+      return foundationOf(1) >= r - 1 && foundationOf(2) >= r - 1;
+    }
+    return foundationOf(0) >= r - 1 && foundationOf(3) >= r - 1;
+  }
+
+  /**
+   * Apply a packed move. The move is trusted to be legal.
+   */
+  void apply(int move) {
+    transfer(srcType(move), srcPile(move), count(move), destType(move), destPile(move));
+  }
+
+  /**
+   * Revert a packed move that was the last one applied.
+   */
+  void undo(int move) {
+    transfer(destType(move), destPile(move), count(move), srcType(move), srcPile(move));
+  }
+
+  /**
+   * Move the top count cards of one pile onto another.
+   */
+  private void transfer(int srcType, int srcPile, int count, int destType, int destPile) {
+    if (srcType == CASCADE && destType == CASCADE) {
+      int from = cascadeLengths[srcPile] - count;
+      System.arraycopy(cascades[srcPile], from, cascades[destPile],
+              cascadeLengths[destPile], count);
+      cascadeLengths[srcPile] = from;
+      cascadeLengths[destPile] += count;
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      push(destType, destPile, pop(srcType, srcPile));
+    }
+  }
+
+  private int pop(int type, int pile) {
+    switch (type) {
+      case OPEN:
+        int card = opens[pile];
+        opens[pile] = PackedState.EMPTY;
+        return card;
+      case CASCADE:
+        return cascades[pile][--cascadeLengths[pile]];
+      default:
+        int c = --foundationCounts[pile] * 4 + foundationSuits[pile];
+        if (foundationCounts[pile] == 0) {
+          suitPile[foundationSuits[pile]] = -1;
+        }
+        return c;
+    }
+  }
+
+  private void push(int type, int pile, int card) {
+    switch (type) {
+      case OPEN:
+        opens[pile] = (byte) card;
+        break;
+      case CASCADE:
+        cascades[pile][cascadeLengths[pile]++] = (byte) card;
+        break;
+      default:
+        if (foundationCounts[pile]++ == 0) {
+          foundationSuits[pile] = suit(card);
+          suitPile[suit(card)] = pile;
+        }
+        break;
+    }
+  }
+
+  /**
+   * Find a card that can be safely played to the foundations and return the move doing so.
+   *
+   * @return the packed move, or -1 if there is none.
+   */
+  int findSafeFoundationMove() {
+    for (int i = 0; i < numOpens; i++) {
+      int card = opens[i];
+      if (card != PackedState.EMPTY) {
+        int f = foundationTarget(card);
+        if (f >= 0 && isSafeToPlay(card)) {
+          return encode(OPEN, i, 0, 1, FOUNDATION, f);
+        }
+      }
+    }
+    for (int i = 0; i < numCascades; i++) {
+      int n = cascadeLengths[i];
+      if (n > 0) {
+        int card = cascades[i][n - 1];
+        int f = foundationTarget(card);
+        if (f >= 0 && isSafeToPlay(card)) {
+          return encode(CASCADE, i, n - 1, 1, FOUNDATION, f);
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Number of cards that can be moved at once onto a cascade pile. With multiMove this follows
+   * the capacity rule of MultiMoveFreecellModel, which counts the destination when it is empty.
+   * Otherwise it is the number of cards that can be moved one at a time through the empty open
+   * and cascade piles, not counting the destination (see expand).
+   *
+   * @param destEmpty whether the destination cascade pile is empty.
+   */
+  int blockCapacity(boolean destEmpty) {
+    int emptyOpens = 0;
+    for (int i = 0; i < numOpens; i++) {
+      if (opens[i] == PackedState.EMPTY) {
+        emptyOpens++;
+      }
+    }
+    int emptyCascades = 0;
+    for (int i = 0; i < numCascades; i++) {
+      if (cascadeLengths[i] == 0) {
+        emptyCascades++;
+      }
+    }
+    if (!multiMove && destEmpty) {
+      emptyCascades--;
+    }
+    return emptyCascades >= 6 ? 52 : Math.min(52, (emptyOpens + 1) << emptyCascades);
+  }
+
+  /**
+   * Length of the ordered run (alternating colors, descending ranks) at the top of a cascade.
+   */
+  int runLength(int pile) {
+    int n = cascadeLengths[pile];
+    if (n == 0) {
+      return 0;
+    }
+    byte[] c = cascades[pile];
+    int len = 1;
+    while (len < n && canStack(c[n - len - 1], c[n - len])) {
+      len++;
+    }
+    return len;
+  }
+
+  /**
+   * Whether card can be placed on top of base in a cascade.
+   */
+  static boolean canStack(int base, int card) {
+    return isBlack(base) != isBlack(card) && rank(base) - rank(card) == 1;
+  }
+
+  /**
+   * Generate candidate moves, best first, into the given buffer. Moves that only differ by
+   * which empty open pile or empty cascade pile they use are generated once.
+   *
+   * @param buf the buffer to fill.
+   * @param off the offset to start writing at.
+   * @return the number of moves written.
+   */
+  int generate(int[] buf, int off) {
+    int n = off;
+    int firstEmptyOpen = -1;
+    for (int i = 0; i < numOpens; i++) {
+      if (opens[i] == PackedState.EMPTY) {
+        firstEmptyOpen = i;
+        break;
+      }
+    }
+    int firstEmptyCascade = -1;
+    for (int i = 0; i < numCascades; i++) {
+      if (cascadeLengths[i] == 0) {
+        firstEmptyCascade = i;
+        break;
+      }
+    }
+    int capacity = blockCapacity(false);
+
+    // 1. foundation moves
+    for (int i = 0; i < numOpens; i++) {
+      int card = opens[i];
+      if (card != PackedState.EMPTY) {
+        int f = foundationTarget(card);
+        if (f >= 0) {
+          buf[n++] = encode(OPEN, i, 0, 1, FOUNDATION, f);
+        }
+      }
+    }
+    for (int i = 0; i < numCascades; i++) {
+      int len = cascadeLengths[i];
+      if (len > 0) {
+        int f = foundationTarget(cascades[i][len - 1]);
+        if (f >= 0) {
+          buf[n++] = encode(CASCADE, i, len - 1, 1, FOUNDATION, f);
+        }
+      }
+    }
+
+    // 2. cascade to non-empty cascade, joining runs
+    for (int i = 0; i < numCascades; i++) {
+      int len = cascadeLengths[i];
+      if (len == 0) {
+        continue;
+      }
+      int run = Math.min(runLength(i), capacity);
+      for (int j = 0; j < numCascades; j++) {
+        int dLen = cascadeLengths[j];
+        if (j == i || dLen == 0) {
+          continue;
+        }
+        int dCard = cascades[j][dLen - 1];
+        for (int k = 1; k <= run; k++) {
+          if (canStack(dCard, cascades[i][len - k])) {
+            buf[n++] = encode(CASCADE, i, len - k, k, CASCADE, j);
+            break;
+          }
+        }
+      }
+    }
+
+    // 3. open pile to non-empty cascade
+    for (int i = 0; i < numOpens; i++) {
+      int card = opens[i];
+      if (card == PackedState.EMPTY) {
+        continue;
+      }
+      for (int j = 0; j < numCascades; j++) {
+        int dLen = cascadeLengths[j];
+        if (dLen > 0 && canStack(cascades[j][dLen - 1], card)) {
+          buf[n++] = encode(OPEN, i, 0, 1, CASCADE, j);
+        }
+      }
+    }
+
+    // 4. into an empty cascade
+    if (firstEmptyCascade >= 0) {
+      capacity = blockCapacity(true);
+      for (int i = 0; i < numOpens; i++) {
+        if (opens[i] != PackedState.EMPTY) {
+          buf[n++] = encode(OPEN, i, 0, 1, CASCADE, firstEmptyCascade);
+        }
+      }
+      for (int i = 0; i < numCascades; i++) {
+        int len = cascadeLengths[i];
+        int run = Math.min(runLength(i), capacity);
+        // moving a whole pile into an empty one changes nothing
+        if (run >= len) {
+          run = len - 1;
+        }
+        if (run >= 1) {
+          buf[n++] = encode(CASCADE, i, len - run, run, CASCADE, firstEmptyCascade);
+        }
+        if (run > 1) {
+          buf[n++] = encode(CASCADE, i, len - 1, 1, CASCADE, firstEmptyCascade);
+        }
+      }
+    }
+
+    // 5. cascade to open pile
+    if (firstEmptyOpen >= 0) {
+      for (int i = 0; i < numCascades; i++) {
+        int len = cascadeLengths[i];
+        if (len > 0) {
+          buf[n++] = encode(CASCADE, i, len - 1, 1, OPEN, firstEmptyOpen);
+        }
+      }
+    }
+    return n - off;
+  }
+
+  /**
+   * Upper bound on the number of moves generate can produce.
+   */
+  int maxMoves() {
+    return numOpens * (numCascades + 2) + numCascades * (numCascades + 4);
+  }
+
+  /**
+   * Estimate how far the current position is from being solved; lower is better. Counts the
+   * cards left to play, the cards sitting above a lower card of their cascade, the cards covering
+   * the next card a foundation needs, and the used open piles, and rewards empty cascade piles.
+   */
+  int score() {
+    int remaining = 52 - foundationCounts[0] - foundationCounts[1] - foundationCounts[2]
+            - foundationCounts[3];
+    int h = remaining * 2;
+    int emptyCascades = 0;
+    for (int i = 0; i < numCascades; i++) {
+      int len = cascadeLengths[i];
+      if (len == 0) {
+        emptyCascades++;
+        continue;
+      }
+      byte[] c = cascades[i];
+      int min = 14;
+      for (int j = 0; j < len; j++) {
+        int r = rank(c[j]);
+        if (r > min) {
+          // must be moved before a lower card of the same pile can go home
+          h += 4;
+        } else {
+          min = r;
+        }
+        if (r == foundationOf(suit(c[j])) + 1) {
+          h += len - 1 - j;
+        }
+      }
+    }
+    for (int i = 0; i < numOpens; i++) {
+      if (opens[i] != PackedState.EMPTY) {
+        h += 2;
+      }
+    }
+    return h - emptyCascades * 6;
+  }
+
+  /**
+   * Canonical key of the current position, shared by positions that only differ by the order of
+   * interchangeable piles.
+   */
+  PackedState key() {
+    return PackedState.canonicalOf(cascades, cascadeLengths, opens,
+            foundationCounts, foundationSuits);
+  }
+
+  /**
+   * Convert a sequence of packed moves, applied from the current position, into solver moves.
+   * Without multiMove, block moves are expanded into single card moves. The moves are applied
+   * to this state.
+   *
+   * @param path   the packed moves.
+   * @param length the number of moves in path.
+   * @return the moves in the form accepted by FreecellModel.move.
+   */
+  List<SolverMove> toMoves(int[] path, int length) {
+    List<SolverMove> moves = new ArrayList<SolverMove>(length);
+    for (int i = 0; i < length; i++) {
+      int m = path[i];
+      if (!multiMove && count(m) > 1) {
+        expand(srcPile(m), count(m), destPile(m), moves);
+      } else {
+        moves.add(toMove(m));
+        apply(m);
+      }
+    }
+    return moves;
+  }
+
+  /**
+   * Move the top count cards of one cascade pile onto another one card at a time, parking cards
+   * in empty open piles and empty cascade piles. Possible whenever count is at most
+   * blockCapacity(destEmpty). Each single move is applied to this state and added to out.
+   */
+  private void expand(int src, int count, int dest, List<SolverMove> out) {
+    int[] free = new int[numOpens];
+    int nFree = 0;
+    for (int i = 0; i < numOpens; i++) {
+      if (opens[i] == PackedState.EMPTY) {
+        free[nFree++] = i;
+      }
+    }
+
+    if (count <= nFree + 1) {
+      for (int i = 0; i < count - 1; i++) {
+        single(encode(CASCADE, src, cascadeLengths[src] - 1, 1, OPEN, free[i]), out);
+      }
+      single(encode(CASCADE, src, cascadeLengths[src] - 1, 1, CASCADE, dest), out);
+      for (int i = count - 2; i >= 0; i--) {
+        single(encode(OPEN, free[i], 0, 1, CASCADE, dest), out);
+      }
+      return;
+    }
+
+    int park = -1;
+    int nEmpty = 0;
+    for (int i = 0; i < numCascades; i++) {
+      if (cascadeLengths[i] == 0 && i != src && i != dest) {
+        if (park == -1) {
+          park = i;
+        }
+        nEmpty++;
+      }
+    }
+    if (park == -1) {
+      throw new IllegalStateException("Error: Block move exceeds capacity");
+    }
+    // park the top of the block, move the rest, then move the parked cards back on top
+    int rest = Math.min((nFree + 1) << (nEmpty - 1), count - 1);
+    expand(src, count - rest, park, out);
+    expand(src, rest, dest, out);
+    expand(park, count - rest, dest, out);
+  }
+
+  private void single(int move, List<SolverMove> out) {
+    out.add(toMove(move));
+    apply(move);
+  }
+
+  private static SolverMove toMove(int m) {
+    return new SolverMove(type(srcType(m)), srcPile(m), cardIndex(m),
+            type(destType(m)), destPile(m));
+  }
+
+  private static PileType type(int t) {
+    switch (t) {
+      case OPEN:
+        return PileType.OPEN;
+      case CASCADE:
+        return PileType.CASCADE;
+      default:
+        return PileType.FOUNDATION;
+    }
+  }
+}
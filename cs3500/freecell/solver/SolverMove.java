@@ -0,0 +1,133 @@
+package cs3500.freecell.solver;
+
+import cs3500.freecell.model.FreecellModel;
+import cs3500.freecell.model.PileType;
+
+/**
+ * A single move found by a solver, in the same form that FreecellModel.move accepts.
+ * All indices start at 0.
+ */
+public final class SolverMove {
+  private final PileType source;
+  private final int pileNumber;
+  private final int cardIndex;
+  private final PileType destination;
+  private final int destPileNumber;
+
+  /**
+   * Constructor.
+   *
+   * @param source         the type of the source pile.
+   * @param pileNumber     the source pile number, starting at 0.
+   * @param cardIndex      the index of the card to be moved, starting at 0.
+   * @param destination    the type of the destination pile.
+   * @param destPileNumber the destination pile number, starting at 0.
+   */
+  public SolverMove(PileType source, int pileNumber, int cardIndex,
+                    PileType destination, int destPileNumber) {
+    if (source == null || destination == null) {
+      throw new IllegalArgumentException("Error: Null PileType");
+    }
+    this.source = source;
+    this.pileNumber = pileNumber;
+    this.cardIndex = cardIndex;
+    this.destination = destination;
+    this.destPileNumber = destPileNumber;
+  }
+
+  /**
+   * Apply this move to the given game.
+   *
+   * @param model the game to apply the move to.
+   * @throws IllegalArgumentException if the move is not possible in the game.
+   * @throws IllegalStateException    if the game has not started.
+   */
+  public void applyTo(FreecellModel<?> model) {
+    model.move(source, pileNumber, cardIndex, destination, destPileNumber);
+  }
+
+  /**
+   * Getter for source.
+   * @return the type of the source pile.
+   */
+  public PileType getSource() {
+    return source;
+  }
+
+  /**
+   * Getter for pileNumber.
+   * @return the source pile number, starting at 0.
+   */
+  public int getPileNumber() {
+    return pileNumber;
+  }
+
+  /**
+   * Getter for cardIndex.
+   * @return the index of the card to be moved, starting at 0.
+   */
+  public int getCardIndex() {
+    return cardIndex;
+  }
+
+  /**
+   * Getter for destination.
+   * @return the type of the destination pile.
+   */
+  public PileType getDestination() {
+    return destination;
+  }
+
+  /**
+   * Getter for destPileNumber.
+   * @return the destination pile number, starting at 0.
+   */
+  public int getDestPileNumber() {
+    return destPileNumber;
+  }
+
+  /**
+   * Render this move as a controller command, e.g. "C1 7 F1". Indices are 1-based.
+   *
+   * @return the move as typed into SimpleFreecellController.
+   */
+  @Override
+  public String toString() {
+    return letter(source) + (pileNumber + 1) + " " + (cardIndex + 1) + " "
+            + letter(destination) + (destPileNumber + 1);
+  }
+
+  /**
+   * Get the controller letter of a pile type.
+   */
+  private static String letter(PileType type) {
+    switch (type) {
+      case OPEN:
+        return "O";
+      case CASCADE:
+        return "C";
+      default:
+        return "F";
+    }
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof SolverMove)) {
+      return false;
+    }
+    SolverMove other = (SolverMove) obj;
+    return source == other.source && pileNumber == other.pileNumber
+            && cardIndex == other.cardIndex && destination == other.destination
+            && destPileNumber == other.destPileNumber;
+  }
+
+  @Override
+  public int hashCode() {
+    return ((((source.ordinal() * 31 + pileNumber) * 31 + cardIndex) * 31
+            + destination.ordinal()) * 31) + destPileNumber;
+  }
+}
@@ -0,0 +1,89 @@
+package cs3500.freecell.solver;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a solver run.
+ */
+public final class SolverResult {
+
+  /**
+   * Possible outcomes of a search.
+   * SOLVED    A solution was found.
+   * UNSOLVABLE No solution exists under the solver's pruned move set, which is not a proof
+   *           that the deal cannot be won: cards are never taken back off the foundation
+   *           piles, only the first empty open or cascade pile is tried, and partial runs are
+   *           only moved into an empty cascade pile as a single card or the longest run.
+   * ABORTED   The node or time budget ran out, or the search was cancelled.
+   */
+  public enum Status {
+    SOLVED, UNSOLVABLE, ABORTED;
+  }
+
+  private final Status status;
+  private final List<SolverMove> moves;
+  private final long nodes;
+  private final long elapsedMillis;
+
+  /**
+   * Constructor.
+   *
+   * @param status        the outcome of the search.
+   * @param moves         the solution, or an empty list if none was found.
+   * @param nodes         the number of positions explored.
+   * @param elapsedMillis the wall-clock duration of the search.
+   */
+  public SolverResult(Status status, List<SolverMove> moves, long nodes, long elapsedMillis) {
+    this.status = status;
+    this.moves = Collections.unmodifiableList(moves);
+    this.nodes = nodes;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  /**
+   * Getter for status.
+   * @return the outcome of the search.
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Whether a solution was found.
+   * @return true if the status is SOLVED.
+   */
+  public boolean isSolved() {
+    return status == Status.SOLVED;
+  }
+
+  /**
+   * Getter for moves.
+   * @return the moves of the solution in order, or an empty list if none was found.
+   */
+  public List<SolverMove> getMoves() {
+    return moves;
+  }
+
+  /**
+   * Getter for nodes.
+   * @return the number of positions explored.
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Getter for elapsedMillis.
+   * @return the wall-clock duration of the search in milliseconds.
+   */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return status + " (" + moves.size() + " moves, " + nodes + " nodes, "
+            + elapsedMillis + " ms)";
+  }
+}
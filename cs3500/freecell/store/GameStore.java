@@ -0,0 +1,633 @@
+package cs3500.freecell.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cs3500.freecell.model.AFreecellModel;
+import cs3500.freecell.model.FreecellModelCreator;
+import cs3500.freecell.model.JournalListener;
+import cs3500.freecell.model.PackedState;
+import cs3500.freecell.model.multimove.MultiMoveFreecellModel;
+
+/**
+ * Keeps games across restarts. Every move, undo, redo and clearJournal of a game in the store is
+ * appended as a fixed-size record to a memory-mapped log, and every so often the log is compacted
+ * into a checkpoint holding the position and moves of each game. Opening a store rebuilds its
+ * games from the last checkpoint and the logs written since.
+ *
+ * <p>The store's directory holds numbered generations of files:
+ * <pre>
+ * checkpoint-G  every game as of the start of log-G: its id, then its type, position (see
+ *               PackedState) and moves (see AFreecellModel.getJournal)
+ * log-G         16-byte records, up to the first record whose op is 0:
+ *               bytes 0-7 game id, 8-11 journal entry (see JournalListener), 15 op.
+ *               A START record gives the size in bytes of the game that follows it, padded
+ *               to whole records. It is written when a game is added, and again whenever the
+ *               game is started or restored anew, replacing what was saved of it.
+ * </pre>
+ * A record's op is written last, so a record cut short by a crash is not replayed. Checkpoints
+ * are built on a background thread from the previous checkpoint and logs, never from the live
+ * games, so they always agree with the logs. Logs are left to the operating system to write
+ * out; see sync.
+ */
+public class GameStore implements Closeable {
+  private static final int MAGIC = 0x46434B50;
+  private static final int RECORD = 16;
+  // size of each part of a log that is mapped at once, a multiple of RECORD
+  private static final int CHUNK = 1 << 22;
+
+  private static final byte START = 1;
+  private static final byte MOVE = 2;
+  private static final byte UNDO = 3;
+  private static final byte REDO = 4;
+  private static final byte END = 5;
+  private static final byte CLEAR = 6;
+
+  // flags stored with each game
+  private static final int MULTIMOVE = 1;
+  private static final int AUTO_PLAY = 2;
+
+  private final Path dir;
+  private final int checkpointInterval;
+  private final Map<Long, AFreecellModel> games = new ConcurrentHashMap<Long, AFreecellModel>();
+  private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "freecell-store-compactor");
+    t.setDaemon(true);
+    return t;
+  });
+
+  // guarded by this
+  private long nextId;
+  private long generation;
+  private FileChannel logChannel;
+  private MappedByteBuffer log;
+  private long logBase;
+  private int recordsInLog = 0;
+  private Future<?> compaction = null;
+  private boolean closed = false;
+
+  /**
+   * Open the store in a directory, creating it if needed, and rebuild the games saved there.
+   *
+   * @param dir                the directory.
+   * @param checkpointInterval the number of records after which a checkpoint is made.
+   * @throws IOException if the files cannot be read or written, or are corrupt.
+   * @throws IllegalArgumentException if the interval is not positive.
+   */
+  public GameStore(Path dir, int checkpointInterval) throws IOException {
+    if (dir == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    if (checkpointInterval < 1) {
+      throw new IllegalArgumentException("Error: Invalid Checkpoint Interval");
+    }
+    this.dir = dir;
+    this.checkpointInterval = checkpointInterval;
+    Files.createDirectories(dir);
+
+    // rebuild the games, then save them as the first checkpoint of a new generation
+    Map<Long, AFreecellModel> recovered = new HashMap<Long, AFreecellModel>();
+    long[] next = {1};
+    long last = load(Long.MAX_VALUE, recovered, next);
+    nextId = next[0];
+    generation = last + 1;
+    writeCheckpoint(generation, nextId, recovered);
+    deleteBefore(generation);
+    openLog();
+
+    for (Map.Entry<Long, AFreecellModel> game : recovered.entrySet()) {
+      games.put(game.getKey(), game.getValue());
+      game.getValue().setJournalListener(new Recorder(game.getKey(), game.getValue()));
+    }
+  }
+
+  /**
+   * Add a started game to the store. Its position and moves so far are saved, and from now on
+   * every move, undo, redo and clearJournal. Whether auto-play is on is saved now, and not when it
+   * changes. Starting or restoring the game again saves it anew.
+   *
+   * @param game the game.
+   * @return the id of the game in the store.
+   * @throws IllegalArgumentException if the game is null or has not started.
+   * @throws IllegalStateException if the store is closed or the log cannot be written.
+   */
+  public long add(AFreecellModel game) {
+    if (game == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    if (game.getNumCascadePiles() == -1) {
+      throw new IllegalArgumentException("Error: Game has not started - Add");
+    }
+    byte[] encoded = encode(game);
+    long id;
+    synchronized (this) {
+      checkOpen();
+      id = nextId++;
+      try {
+        appendStart(id, encoded);
+      } catch (IOException e) {
+        throw new IllegalStateException("Error: Unable to write log");
+      }
+      games.put(id, game);
+    }
+    game.setJournalListener(new Recorder(id, game));
+    return id;
+  }
+
+  /**
+   * Remove a game from the store. Its moves are no longer saved.
+   *
+   * @param id the id of the game.
+   * @throws IllegalStateException if the store is closed or the log cannot be written.
+   */
+  public synchronized void remove(long id) {
+    checkOpen();
+    AFreecellModel game = games.remove(id);
+    if (game != null) {
+      game.setJournalListener(null);
+      append(id, 0, END);
+    }
+  }
+
+  /**
+   * @param id the id of a game.
+   * @return the game, or null if there is no game with that id.
+   */
+  public AFreecellModel get(long id) {
+    return games.get(id);
+  }
+
+  /**
+   * @return the games in the store by id, which cannot be changed through this map.
+   */
+  public Map<Long, AFreecellModel> getGames() {
+    return Collections.unmodifiableMap(games);
+  }
+
+  /**
+   * Start a new log and wait for a checkpoint of everything logged so far.
+   *
+   * @throws IOException if the checkpoint cannot be written.
+   */
+  public void checkpoint() throws IOException {
+    Future<?> done;
+    synchronized (this) {
+      checkOpen();
+      rotate();
+      done = compaction;
+    }
+    await(done);
+  }
+
+  /**
+   * Write the log out to disk, so that it survives the machine going down and not only the
+   * process.
+   */
+  public synchronized void sync() {
+    if (!closed) {
+      log.force();
+    }
+  }
+
+  /**
+   * Write out the log, finish any checkpoint in progress and stop saving the games.
+   *
+   * @throws IOException if a checkpoint could not be written.
+   */
+  @Override
+  public void close() throws IOException {
+    Future<?> done;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      log.force();
+      logChannel.close();
+      closed = true;
+      done = compaction;
+    }
+    for (AFreecellModel game : games.values()) {
+      game.setJournalListener(null);
+    }
+    compactor.shutdown();
+    await(done);
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Error: Store Closed");
+    }
+  }
+
+  private static void await(Future<?> done) throws IOException {
+    if (done == null) {
+      return;
+    }
+    try {
+      done.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Error: Interrupted");
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+              : new IOException("Error: Checkpoint Failed", e.getCause());
+    }
+  }
+
+  /**
+   * Logs the moves of one game.
+   */
+  private final class Recorder implements JournalListener {
+    private final long id;
+    private final AFreecellModel game;
+
+    Recorder(long id, AFreecellModel game) {
+      this.id = id;
+      this.game = game;
+    }
+
+    @Override
+    public void recorded(int entry) {
+      append(id, entry, MOVE);
+    }
+
+    @Override
+    public void undone() {
+      append(id, 0, UNDO);
+    }
+
+    @Override
+    public void redone() {
+      append(id, 0, REDO);
+    }
+
+    @Override
+    public void cleared() {
+      append(id, 0, CLEAR);
+    }
+
+    @Override
+    public void started() {
+      restart(id, encode(game));
+    }
+  }
+
+  // writing the log
+
+  private synchronized void append(long id, int entry, byte op) {
+    if (closed) {
+      // the game was being played as the store closed
+      return;
+    }
+    try {
+      int at = reserve();
+      log.putLong(at, id);
+      log.putInt(at + 8, entry);
+      log.put(at + 15, op);
+      if (++recordsInLog >= checkpointInterval) {
+        rotate();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Error: Unable to write log");
+    }
+  }
+
+  /**
+   * Save a game of the store again, as it was started or restored anew.
+   */
+  private synchronized void restart(long id, byte[] encoded) {
+    if (closed) {
+      // the game was being played as the store closed
+      return;
+    }
+    try {
+      appendStart(id, encoded);
+    } catch (IOException e) {
+      throw new IllegalStateException("Error: Unable to write log");
+    }
+  }
+
+  /**
+   * Append a START record followed by the encoded game, writing the record's op last.
+   */
+  private void appendStart(long id, byte[] encoded) throws IOException {
+    int at = reserve();
+    MappedByteBuffer header = log;
+    header.putLong(at, id);
+    header.putInt(at + 8, encoded.length);
+    for (int i = 0; i < encoded.length; i += RECORD) {
+      int block = reserve();
+      log.put(block, encoded, i, Math.min(RECORD, encoded.length - i));
+    }
+    header.put(at + 15, START);
+    recordsInLog++;
+  }
+
+  /**
+   * Get the offset in log of the next record, mapping more of the file if needed.
+   */
+  private int reserve() throws IOException {
+    if (!log.hasRemaining()) {
+      // sync and rotate only force the current mapping, so write this one out before leaving it
+      log.force();
+      logBase += CHUNK;
+      log = logChannel.map(FileChannel.MapMode.READ_WRITE, logBase, CHUNK);
+    }
+    int at = log.position();
+    log.position(at + RECORD);
+    return at;
+  }
+
+  private void openLog() throws IOException {
+    logChannel = FileChannel.open(file("log-", generation), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    logBase = 0;
+    log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, CHUNK);
+    recordsInLog = 0;
+  }
+
+  /**
+   * Start the next log and have the ones before it compacted into a checkpoint.
+   */
+  private void rotate() throws IOException {
+    log.force();
+    logChannel.close();
+    generation++;
+    openLog();
+    long upTo = generation;
+    compaction = compactor.submit(() -> {
+      compact(upTo);
+      return null;
+    });
+  }
+
+  /**
+   * Write the checkpoint that starts generation upTo, from the newest checkpoint before it and
+   * the logs since, then delete the files it replaces.
+   */
+  private void compact(long upTo) throws IOException {
+    Map<Long, AFreecellModel> saved = new HashMap<Long, AFreecellModel>();
+    long[] next = {1};
+    load(upTo, saved, next);
+    writeCheckpoint(upTo, next[0], saved);
+    deleteBefore(upTo);
+  }
+
+  // reading checkpoints and logs
+
+  /**
+   * Rebuild the games from the newest checkpoint before a generation and the logs from it up to
+   * that generation.
+   *
+   * @param before  the first generation not to read.
+   * @param games   where to put the games.
+   * @param nextId  set to one more than the largest id seen.
+   * @return the newest generation read, or -1 if there were no files.
+   */
+  private long load(long before, Map<Long, AFreecellModel> games, long[] nextId)
+          throws IOException {
+    long checkpoint = -1;
+    TreeSet<Long> logs = new TreeSet<Long>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path f : files) {
+        String name = f.getFileName().toString();
+        if (name.endsWith(".tmp")) {
+          continue;
+        }
+        if (name.startsWith("checkpoint-")) {
+          long gen = Long.parseLong(name.substring("checkpoint-".length()));
+          if (gen < before) {
+            checkpoint = Math.max(checkpoint, gen);
+          }
+        } else if (name.startsWith("log-")) {
+          long gen = Long.parseLong(name.substring("log-".length()));
+          if (gen < before) {
+            logs.add(gen);
+          }
+        }
+      }
+    }
+
+    long last = checkpoint;
+    if (checkpoint >= 0) {
+      readCheckpoint(file("checkpoint-", checkpoint), games, nextId);
+    }
+    for (long gen : logs.tailSet(Math.max(checkpoint, 0))) {
+      replay(file("log-", gen), games, nextId);
+      last = gen;
+    }
+    return last;
+  }
+
+  private void readCheckpoint(Path f, Map<Long, AFreecellModel> games, long[] nextId)
+          throws IOException {
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(f), 1 << 16))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Error: Corrupt Checkpoint - " + f);
+      }
+      in.readLong();
+      nextId[0] = in.readLong();
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        long id = in.readLong();
+        byte[] encoded = new byte[in.readInt()];
+        in.readFully(encoded);
+        games.put(id, decode(ByteBuffer.wrap(encoded), f));
+      }
+    }
+  }
+
+  private void writeCheckpoint(long gen, long nextId, Map<Long, AFreecellModel> games)
+          throws IOException {
+    Path tmp = dir.resolve("checkpoint-" + gen + ".tmp");
+    try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeLong(gen);
+      out.writeLong(nextId);
+      out.writeInt(games.size());
+      for (Map.Entry<Long, AFreecellModel> game : games.entrySet()) {
+        byte[] encoded = encode(game.getValue());
+        out.writeLong(game.getKey());
+        out.writeInt(encoded.length);
+        out.write(encoded);
+      }
+      out.flush();
+      file.getChannel().force(true);
+    }
+    Files.move(tmp, file("checkpoint-", gen), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Apply the records of a log to the games.
+   */
+  private void replay(Path f, Map<Long, AFreecellModel> games, long[] nextId)
+          throws IOException {
+    try (FileChannel channel = FileChannel.open(f, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+      buffer.flip();
+      while (true) {
+        if (!fill(channel, buffer)) {
+          return;
+        }
+        long id = buffer.getLong(buffer.position());
+        int entry = buffer.getInt(buffer.position() + 8);
+        byte op = buffer.get(buffer.position() + 15);
+        buffer.position(buffer.position() + RECORD);
+        if (op == 0) {
+          // the end of the log
+          return;
+        }
+        nextId[0] = Math.max(nextId[0], id + 1);
+
+        if (op == START) {
+          ByteBuffer encoded = ByteBuffer.allocate((entry + RECORD - 1) / RECORD * RECORD);
+          while (encoded.hasRemaining()) {
+            if (!fill(channel, buffer)) {
+              throw new IOException("Error: Corrupt Log - " + f);
+            }
+            buffer.get(encoded.array(), encoded.position(), RECORD);
+            encoded.position(encoded.position() + RECORD);
+          }
+          encoded.flip();
+          games.put(id, decode(encoded, f));
+          continue;
+        }
+
+        AFreecellModel game = games.get(id);
+        if (game == null) {
+          throw new IOException("Error: Corrupt Log - Unknown Game " + id + " in " + f);
+        }
+        try {
+          switch (op) {
+            case MOVE:
+              game.applyRecorded(entry);
+              break;
+            case UNDO:
+              game.undo();
+              break;
+            case REDO:
+              game.redo();
+              break;
+            case CLEAR:
+              game.clearJournal();
+              break;
+            case END:
+              games.remove(id);
+              break;
+            default:
+              throw new IOException("Error: Corrupt Log - " + f);
+          }
+        } catch (IllegalStateException | IndexOutOfBoundsException e) {
+          throw new IOException("Error: Corrupt Log - " + f, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Make sure the buffer holds a whole record, reading more of the channel if needed.
+   *
+   * @return false if the channel ended first.
+   */
+  private static boolean fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+    if (buffer.remaining() >= RECORD) {
+      return true;
+    }
+    buffer.compact();
+    while (buffer.position() < RECORD) {
+      if (channel.read(buffer) < 0) {
+        buffer.flip();
+        return false;
+      }
+    }
+    buffer.flip();
+    return true;
+  }
+
+  // the saved form of a game: flags, position, applied and total number of moves, moves
+
+  private static byte[] encode(AFreecellModel game) {
+    byte[] state = PackedState.of(game).toByteArray();
+    int[] moves = new int[game.getJournal(new int[0])];
+    game.getJournal(moves);
+
+    ByteBuffer out = ByteBuffer.allocate(1 + 2 + state.length + 8 + 4 * moves.length);
+    int flags = (game instanceof MultiMoveFreecellModel ? MULTIMOVE : 0)
+            | (game.isAutoPlay() ? AUTO_PLAY : 0);
+    out.put((byte) flags);
+    out.putShort((short) state.length);
+    out.put(state);
+    out.putInt(game.getMoveCount());
+    out.putInt(moves.length);
+    for (int move : moves) {
+      out.putInt(move);
+    }
+    return out.array();
+  }
+
+  private static AFreecellModel decode(ByteBuffer in, Path f) throws IOException {
+    try {
+      int flags = in.get();
+      byte[] state = new byte[in.getShort()];
+      in.get(state);
+      int moveCount = in.getInt();
+      int[] moves = new int[in.getInt()];
+      for (int i = 0; i < moves.length; i++) {
+        moves[i] = in.getInt();
+      }
+
+      AFreecellModel game = (AFreecellModel) FreecellModelCreator.create(
+              (flags & MULTIMOVE) != 0 ? FreecellModelCreator.GameType.MULTIMOVE
+                      : FreecellModelCreator.GameType.SINGLEMOVE);
+      game.restoreState(PackedState.fromByteArray(state), moves, moveCount, moves.length);
+      game.setAutoPlay((flags & AUTO_PLAY) != 0);
+      return game;
+    } catch (RuntimeException e) {
+      throw new IOException("Error: Corrupt Game - " + f, e);
+    }
+  }
+
+  private Path file(String prefix, long gen) {
+    return dir.resolve(prefix + gen);
+  }
+
+  private void deleteBefore(long gen) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path f : files) {
+        String name = f.getFileName().toString();
+        String number = name.startsWith("checkpoint-") ? name.substring("checkpoint-".length())
+                : name.startsWith("log-") ? name.substring("log-".length()) : null;
+        if (number != null && number.endsWith(".tmp")) {
+          // a checkpoint that was never finished
+          Files.delete(f);
+        } else if (number != null && Long.parseLong(number) < gen) {
+          Files.delete(f);
+        }
+      }
+    }
+  }
+}
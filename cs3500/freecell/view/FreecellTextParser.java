@@ -0,0 +1,397 @@
+package cs3500.freecell.view;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import cs3500.freecell.cards.Card;
+import cs3500.freecell.model.AFreecellModel;
+import cs3500.freecell.model.FreecellModelCreator;
+import cs3500.freecell.model.PackedState;
+
+/**
+ * Reads boards in the format documented on FreecellView, as written by FreecellTextView, into
+ * games. A stream may hold any number of boards, one after another: a board ends at the end of
+ * the input, at a blank line or where the next board's F1 line begins. A "#full" line before a
+ * board, as sent by renderBoardDelta, is skipped.
+ *
+ * <p>Input is read from the Readable in large chunks, or straight from a CharBuffer, and every
+ * buffer is reused from one board to the next, so reading a board allocates little more than
+ * the game's position.
+ */
+public final class FreecellTextParser {
+  private static final int DEFAULT_CHUNK = 8192;
+  private static final long ALL_CARDS = (1L << 52) - 1;
+
+  private final Readable rd;
+  private final CharBuffer chunk;
+  private boolean endOfInput;
+
+  // the current line, without its line break
+  private char[] line = new char[128];
+  private int length = 0;
+  private int lineNumber = 0;
+  // whether the current line was read but belongs to the next board
+  private boolean pending = false;
+  // whether the last board was rejected, so the rest of it must be skipped
+  private boolean skipping = false;
+  private final CardText cardText = new CardText();
+
+  // the board being read, see PackedState.of
+  private byte[][] cascades = new byte[0][];
+  private int[] cascadeLengths = new int[0];
+  private byte[] opens = new byte[0];
+  private final int[] foundationCounts = new int[4];
+  private final int[] foundationSuits = new int[4];
+  private int nFoundations;
+  private int nOpens;
+  private int nCascades;
+  // the cards seen so far, one bit per card (see Card.indexOf)
+  private long seen;
+
+  /**
+   * Constructor for FreecellTextParser. A CharBuffer is read in place, from its position.
+   *
+   * @param rd the input.
+   * @throws IllegalArgumentException if rd is null.
+   */
+  public FreecellTextParser(Readable rd) {
+    if (rd == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    this.rd = rd;
+    if (rd instanceof CharBuffer) {
+      this.chunk = (CharBuffer) rd;
+      this.endOfInput = true;
+    } else {
+      this.chunk = CharBuffer.allocate(DEFAULT_CHUNK);
+      // nothing has been read yet
+      this.chunk.flip();
+      this.endOfInput = false;
+    }
+  }
+
+  /**
+   * Read a single board into a new game.
+   *
+   * @param board the board.
+   * @param type  the type of game to make.
+   * @return the game, started at the board's position.
+   * @throws IllegalArgumentException if the board is missing or malformed.
+   */
+  public static AFreecellModel parse(CharSequence board, FreecellModelCreator.GameType type) {
+    if (board == null || type == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+    AFreecellModel game = (AFreecellModel) FreecellModelCreator.create(type);
+    if (!new FreecellTextParser(CharBuffer.wrap(board)).next(game)) {
+      throw new IllegalArgumentException("Error: Invalid Board - No Board");
+    }
+    return game;
+  }
+
+  /**
+   * Read the next board into a game, replacing its state as restoreState does. After a board
+   * is rejected, the next call carries on from the board after it.
+   *
+   * @param game the game.
+   * @return whether there was another board, false at the end of the input.
+   * @throws IllegalArgumentException if the game is null, or the board is malformed or does not
+   *                                  hold each of the 52 cards exactly once.
+   * @throws IllegalStateException if reading from the Readable fails.
+   */
+  public boolean next(AFreecellModel game) {
+    if (game == null) {
+      throw new IllegalArgumentException("Error: Null Argument");
+    }
+
+    // find the first line of the board
+    while (true) {
+      if (!pending && !readLine()) {
+        return false;
+      }
+      pending = false;
+      if (isBlank() || startsWith("#full") || (skipping && !isLabel('F', 1))) {
+        continue;
+      }
+      break;
+    }
+
+    skipping = true;
+    readBoard();
+    if (nCascades == 0) {
+      throw error("No Cascade Piles");
+    }
+    if (seen != ALL_CARDS) {
+      throw new IllegalArgumentException("Error: Invalid Board - Missing "
+              + (52 - Long.bitCount(seen)) + " Cards");
+    }
+    // PackedState takes the number of piles from the lengths of the arrays, which only change
+    // when a board has fewer piles than one before it
+    if (cascadeLengths.length != nCascades) {
+      cascadeLengths = Arrays.copyOf(cascadeLengths, nCascades);
+    }
+    if (opens.length != nOpens) {
+      opens = Arrays.copyOf(opens, nOpens);
+    }
+    game.restoreState(PackedState.of(cascades, cascadeLengths, opens,
+            foundationCounts, foundationSuits));
+    skipping = false;
+    return true;
+  }
+
+  /**
+   * Read the lines of a board, starting with the current line.
+   */
+  private void readBoard() {
+    nFoundations = 0;
+    nOpens = 0;
+    nCascades = 0;
+    seen = 0;
+    do {
+      if (length == 0 || line[0] == '#') {
+        throw error("Unexpected Line");
+      }
+      char type = line[0];
+      int at = 1;
+      int number = 0;
+      while (at < length && line[at] >= '0' && line[at] <= '9' && number < 1000) {
+        number = number * 10 + line[at++] - '0';
+      }
+      if (at == 1 || at == length || line[at] != ':') {
+        throw error("Expected a Pile Name");
+      }
+      at++;
+
+      switch (type) {
+        case 'F':
+          if (nOpens > 0 || number != nFoundations + 1 || nFoundations == 4) {
+            throw error("Unexpected Pile F" + number);
+          }
+          foundationCounts[nFoundations] = 0;
+          foundationSuits[nFoundations] = 0;
+          nFoundations++;
+          break;
+        case 'O':
+          if (nFoundations < 4 || nCascades > 0 || number != nOpens + 1) {
+            throw error("Unexpected Pile O" + number);
+          }
+          if (opens.length == nOpens) {
+            opens = Arrays.copyOf(opens, nOpens + 1);
+          }
+          opens[nOpens++] = PackedState.EMPTY;
+          break;
+        case 'C':
+          if (nOpens == 0 || number != nCascades + 1) {
+            throw error("Unexpected Pile C" + number);
+          }
+          if (cascades.length == nCascades) {
+            cascades = Arrays.copyOf(cascades, nCascades + 1);
+            cascades[nCascades] = new byte[52];
+          }
+          if (cascadeLengths.length == nCascades) {
+            cascadeLengths = Arrays.copyOf(cascadeLengths, nCascades + 1);
+          }
+          cascadeLengths[nCascades++] = 0;
+          break;
+        default:
+          throw error("Expected a Pile Name");
+      }
+      readCards(type, at);
+
+      // the board ends at the end of the input, a blank line or the next board
+      if (!readLine()) {
+        break;
+      }
+      if (nCascades > 0 && (isBlank() || line[0] == '#' || isLabel('F', 1))) {
+        pending = !isBlank();
+        break;
+      }
+    } while (true);
+
+    if (nFoundations < 4 || nOpens == 0) {
+      throw error("Board Cut Short");
+    }
+  }
+
+  /**
+   * Read the cards of the current line, from the given index, into the current pile.
+   */
+  private void readCards(char type, int at) {
+    at = skipSpaces(at);
+    if (at == length) {
+      return;
+    }
+    while (true) {
+      int start = at;
+      while (at < length && line[at] != ',' && !Character.isWhitespace(line[at])) {
+        at++;
+      }
+      if (at == start) {
+        throw error("Expected a Card");
+      }
+      cardText.start = start;
+      cardText.length = at - start;
+      int card;
+      try {
+        card = Card.indexOf(Card.parse(cardText));
+      } catch (IllegalArgumentException e) {
+        throw error(e.getMessage().substring("Error: ".length()) + " " + cardText);
+      }
+      if ((seen & 1L << card) != 0) {
+        throw error("Duplicate Card " + cardText);
+      }
+      seen |= 1L << card;
+      addCard(type, card);
+
+      at = skipSpaces(at);
+      if (at == length) {
+        return;
+      }
+      if (line[at] != ',') {
+        throw error("Expected a Comma");
+      }
+      at = skipSpaces(at + 1);
+    }
+  }
+
+  /**
+   * Put a card on the current pile of the given type.
+   */
+  private void addCard(char type, int card) {
+    switch (type) {
+      case 'F':
+        int pile = nFoundations - 1;
+        // a foundation pile is an ace and the cards above it, in order, of one suit
+        if (card >> 2 != foundationCounts[pile]
+                || (foundationCounts[pile] > 0 && (card & 3) != foundationSuits[pile])) {
+          throw error("Foundation Out of Order");
+        }
+        foundationSuits[pile] = card & 3;
+        foundationCounts[pile]++;
+        break;
+      case 'O':
+        if (opens[nOpens - 1] != PackedState.EMPTY) {
+          throw error("Open Pile Holds Two Cards");
+        }
+        opens[nOpens - 1] = (byte) card;
+        break;
+      default:
+        cascades[nCascades - 1][cascadeLengths[nCascades - 1]++] = (byte) card;
+        break;
+    }
+  }
+
+  private int skipSpaces(int at) {
+    while (at < length && Character.isWhitespace(line[at])) {
+      at++;
+    }
+    return at;
+  }
+
+  private boolean isBlank() {
+    return skipSpaces(0) == length;
+  }
+
+  private boolean startsWith(String prefix) {
+    if (length < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (line[i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isLabel(char type, int number) {
+    return length >= 3 && line[0] == type && line[1] == '0' + number && line[2] == ':';
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException("Error: Invalid Board - Line " + lineNumber + ": "
+            + message);
+  }
+
+  /**
+   * Read the next line into line, without its line break.
+   *
+   * @return false if the input has ended.
+   */
+  private boolean readLine() {
+    length = 0;
+    boolean any = false;
+    while (fill()) {
+      any = true;
+      char c = chunk.get();
+      if (c == '\n') {
+        break;
+      }
+      if (length == line.length) {
+        char[] grown = new char[length * 2];
+        System.arraycopy(line, 0, grown, 0, length);
+        line = grown;
+      }
+      line[length++] = c;
+    }
+    if (length > 0 && line[length - 1] == '\r') {
+      length--;
+    }
+    if (any) {
+      lineNumber++;
+    }
+    return any;
+  }
+
+  /**
+   * Make sure there is unread input in chunk.
+   *
+   * @return false if the input has ended.
+   */
+  private boolean fill() {
+    while (!chunk.hasRemaining()) {
+      if (endOfInput) {
+        return false;
+      }
+      chunk.clear();
+      int n;
+      try {
+        n = rd.read(chunk);
+      } catch (IOException e) {
+        throw new IllegalStateException("Error: Unable to read input");
+      }
+      chunk.flip();
+      endOfInput = n < 0;
+    }
+    return true;
+  }
+
+  /**
+   * The text of the card being read, a part of the current line, for Card.parse.
+   */
+  private final class CardText implements CharSequence {
+    private int start;
+    private int length;
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return line[start + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      return new String(line, start + from, to - from);
+    }
+
+    @Override
+    public String toString() {
+      return new String(line, start, length);
+    }
+  }
+}
@@ -1,23 +1,44 @@
 package cs3500.freecell.view;
 
 import java.io.IOException;
+import java.io.Writer;
 
 import cs3500.freecell.model.FreecellModelState;
 
 /**
- * Represents the visuals of Freecell in text format.
+ * Represents the visuals of Freecell in text format. The board is written in a single pass into
+ * a buffer that is reused from one render to the next, and from there straight to the
+ * Appendable.
  */
 public class FreecellTextView implements FreecellView {
+  /**
+   * Number of patches renderBoardDelta sends between two snapshots unless told otherwise.
+   */
+  public static final int DEFAULT_SNAPSHOT_INTERVAL = 64;
 
   private FreecellModelState fms;
   private Appendable ap;
 
+  // reused by every render, see render
+  private final StringBuilder buffer = new StringBuilder(256);
+  private char[] chars = new char[0];
+
+  /*
+   * The board last sent by renderBoardDelta, one entry per line of the board: the cards of each
+   * pile and how many there are. Empty until the first snapshot.
+   */
+  private Object[][] sentCards = new Object[0][];
+  private int[] sentSizes = new int[0];
+  private boolean[] changed = new boolean[0];
+  private final int snapshotInterval;
+  private int deltasSinceSnapshot = 0;
+
   /**
    * Constructor for FreecellTextView.
    * @param fms The game of freecell.
    */
   public FreecellTextView(FreecellModelState<?> fms) {
-    this.fms = fms;
+    this(fms, null);
   }
 
   /**
@@ -26,22 +47,72 @@ public class FreecellTextView implements FreecellView {
    * @param ap The visualization of freecell.
    */
   public FreecellTextView(FreecellModelState<?> fms, Appendable ap) {
+    this(fms, ap, DEFAULT_SNAPSHOT_INTERVAL);
+  }
+
+  /**
+   * Constructor for FreecellTextView.
+   * @param fms The game of freecell.
+   * @param ap The visualization of freecell.
+   * @param snapshotInterval How many patches renderBoardDelta may send in a row before it sends
+   *                         the whole board again.
+   * @throws IllegalArgumentException if the snapshot interval is not positive.
+   */
+  public FreecellTextView(FreecellModelState<?> fms, Appendable ap, int snapshotInterval) {
+    if (snapshotInterval < 1) {
+      throw new IllegalArgumentException("Error: Invalid Snapshot Interval");
+    }
     this.fms = fms;
     this.ap = ap;
+    this.snapshotInterval = snapshotInterval;
   }
 
   @Override
   public void renderBoard() throws IOException {
-    if (ap == null) {
-      try {
-        System.out.print(toString());
-      }
-      catch (Exception e) {
-        throw new IOException("IOException: Render Board");
+    render();
+    write("IOException: Render Board");
+  }
+
+  @Override
+  public void renderBoardDelta() throws IOException {
+    buffer.setLength(0);
+    if (fms.getNumCascadePiles() == -1) {
+      write("IOException: Render Board");
+      return;
+    }
+
+    int nLines = 4 + fms.getNumOpenPiles() + fms.getNumCascadePiles();
+    boolean snapshot = nLines != sentSizes.length || deltasSinceSnapshot == snapshotInterval;
+    if (nLines != sentSizes.length) {
+      sentCards = new Object[nLines][];
+      sentSizes = new int[nLines];
+      changed = new boolean[nLines];
+    }
+
+    int nChanged = 0;
+    for (int line = 0; line < nLines; line++) {
+      changed[line] = remember(line);
+      if (changed[line]) {
+        nChanged++;
       }
     }
 
-    ap.append(toString());
+    if (snapshot) {
+      deltasSinceSnapshot = 0;
+      buffer.append("#full\n");
+      appendBoard();
+    }
+    else {
+      deltasSinceSnapshot++;
+      buffer.append("#delta ").append(nChanged);
+      for (int line = 0; line < nLines; line++) {
+        if (changed[line]) {
+          buffer.append('\n');
+          appendLine(line);
+        }
+      }
+    }
+    write("IOException: Render Board");
   }
 
   @Override
@@ -53,6 +124,7 @@ public class FreecellTextView implements FreecellView {
       catch (Exception e) {
         throw new IOException("IOException: Render Message");
       }
+      return;
     }
 
     ap.append(message);
@@ -60,52 +132,133 @@ public class FreecellTextView implements FreecellView {
 
   @Override
   public String toString() {
-    if (fms.getNumCascadePiles() == -1) {
-      return "";
-    }
-    String view = "";
+    render();
+    return buffer.toString();
+  }
 
-    // string representation of foundation piles
-    for (int i = 0; i < 4; i++) {
-      view += "F" + (i + 1) + ":";
+  /**
+   * Send the contents of buffer to the Appendable, or to System.out if there is none.
+   */
+  private void write(String errorMessage) throws IOException {
+    if (ap == null) {
+      try {
+        System.out.append(buffer);
+      }
+      catch (Exception e) {
+        throw new IOException(errorMessage);
+      }
+      return;
+    }
 
-      int nCards = fms.getNumCardsInFoundationPile(i);
-      if (nCards > 0) {
-        for (int j = 0; j < nCards; j++) {
-          view += " " + fms.getFoundationCardAt(i, j) + ",";
-        }
-        view = view.substring(0, view.length() - 1);
+    if (ap instanceof Writer) {
+      // Writer.append(CharSequence) would copy the board into a String first
+      if (chars.length < buffer.length()) {
+        chars = new char[buffer.capacity()];
       }
-      view += "\n";
+      buffer.getChars(0, buffer.length(), chars, 0);
+      ((Writer) ap).write(chars, 0, buffer.length());
+    }
+    else {
+      ap.append(buffer);
     }
+  }
 
-    // string representation of open piles
-    for (int i = 0; i < fms.getNumOpenPiles(); i++) {
-      view += "O" + (i + 1) + ":";
+  /**
+   * Write the board into buffer, replacing its contents, in the format documented on
+   * FreecellView.
+   */
+  private void render() {
+    buffer.setLength(0);
+    if (fms.getNumCascadePiles() == -1) {
+      return;
+    }
+    appendBoard();
+  }
 
-      int nCards = fms.getNumCardsInOpenPile(i);
-      if (nCards > 0) {
-        view += " " + fms.getOpenCardAt(i);
+  /**
+   * Append every line of the board to buffer, with no newline after the last one.
+   */
+  private void appendBoard() {
+    int nLines = 4 + fms.getNumOpenPiles() + fms.getNumCascadePiles();
+    for (int line = 0; line < nLines; line++) {
+      if (line > 0) {
+        buffer.append('\n');
       }
-      view += "\n";
+      appendLine(line);
     }
+  }
 
-    // string representation of cascade piles
-    for (int i = 0; i < fms.getNumCascadePiles(); i++) {
-      view += "C" + (i + 1) + ":";
-
-      int nCards = fms.getNumCardsInCascadePile(i);
-      if (nCards > 0) {
-        for (int j = 0; j < nCards; j++) {
-          view += " " + fms.getCascadeCardAt(i, j) + ",";
-        }
-        view = view.substring(0, view.length() - 1);
+  /**
+   * Append one line of the board to buffer, without a newline. Lines are numbered from the top:
+   * the foundation piles, then the open piles, then the cascade piles.
+   */
+  private void appendLine(int line) {
+    int nOpens = fms.getNumOpenPiles();
+    if (line < 4) {
+      buffer.append('F').append(line + 1).append(':');
+      int nCards = fms.getNumCardsInFoundationPile(line);
+      for (int j = 0; j < nCards; j++) {
+        buffer.append(j == 0 ? " " : ", ").append(fms.getFoundationCardAt(line, j));
       }
-      view += "\n";
     }
+    else if (line < 4 + nOpens) {
+      int pile = line - 4;
+      buffer.append('O').append(pile + 1).append(':');
+      if (fms.getNumCardsInOpenPile(pile) > 0) {
+        buffer.append(' ').append(fms.getOpenCardAt(pile));
+      }
+    }
+    else {
+      int pile = line - 4 - nOpens;
+      buffer.append('C').append(pile + 1).append(':');
+      int nCards = fms.getNumCardsInCascadePile(pile);
+      for (int j = 0; j < nCards; j++) {
+        buffer.append(j == 0 ? " " : ", ").append(fms.getCascadeCardAt(pile, j));
+      }
+    }
+  }
 
-    view = view.substring(0, view.length() - 1);
+  /**
+   * Record the current cards of one line of the board as sent.
+   *
+   * @return whether they differ from the cards last sent for that line.
+   */
+  private boolean remember(int line) {
+    int nOpens = fms.getNumOpenPiles();
+    int nCards;
+    if (line < 4) {
+      nCards = fms.getNumCardsInFoundationPile(line);
+    }
+    else if (line < 4 + nOpens) {
+      nCards = fms.getNumCardsInOpenPile(line - 4);
+    }
+    else {
+      nCards = fms.getNumCardsInCascadePile(line - 4 - nOpens);
+    }
 
-    return view;
+    Object[] sent = sentCards[line];
+    boolean differs = sent == null || sentSizes[line] != nCards;
+    if (sent == null || sent.length < nCards) {
+      sent = new Object[Math.max(nCards, 8)];
+      sentCards[line] = sent;
+    }
+    for (int j = 0; j < nCards; j++) {
+      Object card;
+      if (line < 4) {
+        card = fms.getFoundationCardAt(line, j);
+      }
+      else if (line < 4 + nOpens) {
+        card = fms.getOpenCardAt(line - 4);
+      }
+      else {
+        card = fms.getCascadeCardAt(line - 4 - nOpens, j);
+      }
+      if (!differs && !card.equals(sent[j])) {
+        differs = true;
+      }
+      sent[j] = card;
+    }
+    sentSizes[line] = nCards;
+    return differs;
   }
 }
@@ -40,6 +40,25 @@ public interface FreecellView {
    */
   void renderBoard() throws IOException;
 
+  /**
+   * Render only what changed since the last call to this method, as a patch. A patch is a header
+   * line followed by the lines of the board, in the format of the toString method above, of every
+   * pile whose cards changed:
+   * <pre>
+   * #delta[b]k[n]    (k piles changed)
+   * C3:[b]c31,[b]...,[b]c3p3[n]
+   * ...
+   * O1:[b]o11     (the last line has no newline)
+   * </pre>
+   * The first call, any call after the number of piles changed, and every so often after that
+   * send a snapshot instead: a "#full" header line followed by the whole board exactly as
+   * renderBoard renders it. A client that applies each patch to the last snapshot always holds
+   * the current board.
+   *
+   * @throws IOException if transmission of the patch to the provided data destination fails
+   */
+  void renderBoardDelta() throws IOException;
+
   /**
    * Render a specific message to the provided data destination.
    *
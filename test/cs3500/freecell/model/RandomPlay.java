@@ -0,0 +1,56 @@
+package cs3500.freecell.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Random play for tests that save and restore games.
+ */
+public final class RandomPlay {
+
+  private RandomPlay() {
+  }
+
+  /**
+   * Make random moves, undos and redos, and turn auto-play on and off. Clearing the journal
+   * loses the deal the game started from, so it is only done if asked for.
+   *
+   * @param game   the started game.
+   * @param random where the choices come from.
+   * @param steps  the number of choices to make.
+   * @param clear  whether to sometimes clear the journal.
+   */
+  public static void play(AFreecellModel game, Random random, int steps, boolean clear) {
+    int[] moves = new int[Moves.maxLegalMoves(game.getNumCascadePiles(), game.getNumOpenPiles())];
+    for (int i = 0; i < steps; i++) {
+      int op = random.nextInt(12);
+      if (op == 0 && game.canUndo()) {
+        game.undo();
+      } else if (op == 1 && game.canRedo()) {
+        game.redo();
+      } else if (op == 2) {
+        game.setAutoPlay(!game.isAutoPlay());
+      } else if (clear && op == 3 && random.nextInt(4) == 0) {
+        game.clearJournal();
+      } else {
+        int n = game.getLegalMoves(moves);
+        if (n > 0) {
+          Moves.apply(game, moves[random.nextInt(n)]);
+        }
+      }
+    }
+  }
+
+  /**
+   * The position, moves and type of a game, which are what every saved game keeps.
+   *
+   * @param game the started game.
+   * @return a string that is equal for two games only if all of those are.
+   */
+  public static String signature(AFreecellModel game) {
+    int[] journal = new int[game.getJournal(new int[0])];
+    game.getJournal(journal);
+    return Arrays.toString(PackedState.of(game).toByteArray()) + " " + game.getMoveCount() + " "
+            + Arrays.toString(journal) + " " + game.getClass().getSimpleName();
+  }
+}
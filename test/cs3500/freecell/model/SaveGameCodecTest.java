@@ -0,0 +1,165 @@
+package cs3500.freecell.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cs3500.freecell.model.multimove.MultiMoveFreecellModel;
+
+/**
+ * Tests for SaveGameCodec: games decode to what was encoded, however they were started and
+ * played, and corrupt input is rejected with IllegalArgumentException.
+ */
+public class SaveGameCodecTest {
+  /**
+   * Everything a saved game keeps.
+   */
+  private static String signature(AFreecellModel game) {
+    return RandomPlay.signature(game) + " " + game.isAutoPlay() + " " + game.getPositionHash();
+  }
+
+  /**
+   * Whether a game holds each of the 52 cards exactly once.
+   */
+  private static boolean holdsEachCardOnce(AFreecellModel game) {
+    boolean[] seen = new boolean[52];
+    int count = 0;
+    for (PileType type : PileType.values()) {
+      for (int i = 0; i < game.pileCount(type); i++) {
+        for (int j = 0; j < game.pileSize(type, i); j++) {
+          int card = game.cardAt(type, i, j);
+          if (card < 0 || card >= 52 || seen[card]) {
+            return false;
+          }
+          seen[card] = true;
+          count++;
+        }
+      }
+    }
+    return count == 52;
+  }
+
+  /**
+   * Encode random games one after another: dealt by number, dealt from a shuffled deck and
+   * restored from a position, with various numbers of piles.
+   */
+  private static ByteBuffer encodeGames(Random random, int count, List<String> signatures) {
+    ByteBuffer out = ByteBuffer.allocate(8 << 20);
+    for (int i = 0; i < count; i++) {
+      AFreecellModel game = i % 2 == 0 ? new MultiMoveFreecellModel() : new SimpleFreecellModel();
+      int cascades = 4 + random.nextInt(9);
+      int opens = 1 + random.nextInt(6);
+      if (i % 3 == 0) {
+        game.startDeal(i + 1, cascades, opens);
+      } else if (i % 3 == 1) {
+        game.startGame(game.getDeck(), cascades, opens, true);
+      } else {
+        game.startDeal(i + 1, cascades, opens);
+        RandomPlay.play(game, random, 10, false);
+        game.restoreState(PackedState.of(game));
+      }
+      game.setAutoPlay(random.nextBoolean());
+      RandomPlay.play(game, random, random.nextInt(200), i % 6 != 0);
+
+      int start = out.position();
+      if (i % 6 == 0) {
+        SaveGameCodec.encode(game, i + 1, out);
+      } else {
+        SaveGameCodec.encode(game, out);
+      }
+      assertTrue(out.position() - start <= SaveGameCodec.maxEncodedSize(game));
+      signatures.add(signature(game));
+    }
+    out.flip();
+    return out;
+  }
+
+  @Test
+  public void testRoundTrip() {
+    List<String> expected = new ArrayList<String>();
+    ByteBuffer in = encodeGames(new Random(1), 600, expected);
+    for (String game : expected) {
+      assertEquals(game, signature(SaveGameCodec.decode(in)));
+    }
+    assertFalse(in.hasRemaining());
+  }
+
+  @Test
+  public void testRoundTripDirectBuffer() {
+    AFreecellModel game = new MultiMoveFreecellModel();
+    game.startDeal(7, 8, 4);
+    RandomPlay.play(game, new Random(2), 100, false);
+    ByteBuffer out = ByteBuffer.allocateDirect(SaveGameCodec.maxEncodedSize(game));
+    SaveGameCodec.encode(game, 7, out);
+    out.flip();
+    assertEquals(signature(game), signature(SaveGameCodec.decode(out)));
+  }
+
+  @Test
+  public void testDealSavedAsItsNumber() {
+    AFreecellModel game = new SimpleFreecellModel();
+    game.startDeal(5, 8, 4);
+    ByteBuffer out = ByteBuffer.allocate(100);
+    SaveGameCodec.encode(game, 5, out);
+    // header, deal number and two empty varints
+    assertEquals(12, out.position());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEncodeWrongDealNumber() {
+    AFreecellModel game = new SimpleFreecellModel();
+    game.startDeal(5, 8, 4);
+    SaveGameCodec.encode(game, 6, ByteBuffer.allocate(1000));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEncodeGameNotStarted() {
+    SaveGameCodec.encode(new SimpleFreecellModel(), ByteBuffer.allocate(1000));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeNotASavedGame() {
+    SaveGameCodec.decode(ByteBuffer.wrap(new byte[] {'F', 'C', 1, 0, 8, 4}));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeOtherVersion() {
+    AFreecellModel game = new SimpleFreecellModel();
+    game.startDeal(5, 8, 4);
+    ByteBuffer out = ByteBuffer.allocate(100);
+    SaveGameCodec.encode(game, 5, out);
+    out.put(2, (byte) (SaveGameCodec.VERSION + 1));
+    out.flip();
+    SaveGameCodec.decode(out);
+  }
+
+  @Test
+  public void testCorruptInputRejected() {
+    Random random = new Random(3);
+    ByteBuffer encoded = encodeGames(random, 100, new ArrayList<String>());
+    byte[] all = new byte[Math.min(encoded.remaining(), 3000)];
+    encoded.get(all);
+    for (int i = 0; i < 5000; i++) {
+      byte[] corrupt = all.clone();
+      for (int k = 0; k < 3; k++) {
+        corrupt[random.nextInt(corrupt.length)] ^= 1 << random.nextInt(8);
+      }
+      // input with flipped bits or cut short either decodes to a whole deck or is rejected
+      ByteBuffer in = ByteBuffer.wrap(corrupt, 0, random.nextInt(corrupt.length));
+      try {
+        while (in.hasRemaining()) {
+          assertTrue(holdsEachCardOnce(SaveGameCodec.decode(in)));
+        }
+      } catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage().startsWith("Error: "));
+      }
+    }
+  }
+}
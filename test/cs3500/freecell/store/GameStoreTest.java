@@ -0,0 +1,252 @@
+package cs3500.freecell.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cs3500.freecell.model.AFreecellModel;
+import cs3500.freecell.model.Moves;
+import cs3500.freecell.model.PackedState;
+import cs3500.freecell.model.RandomPlay;
+import cs3500.freecell.model.SimpleFreecellModel;
+import cs3500.freecell.model.multimove.MultiMoveFreecellModel;
+
+/**
+ * Tests for GameStore: the games in a store are rebuilt when it is opened again, whether it was
+ * closed or the process died without closing it.
+ */
+public class GameStoreTest {
+  private static final int[] MOVES = new int[Moves.maxLegalMoves(8, 4)];
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Map<Long, String> signatures(GameStore store) {
+    Map<Long, String> result = new HashMap<Long, String>();
+    for (Map.Entry<Long, AFreecellModel> game : store.getGames().entrySet()) {
+      result.put(game.getKey(), RandomPlay.signature(game.getValue()));
+    }
+    return result;
+  }
+
+  /**
+   * Add games to the store, played before and after they are added, and remove some of them.
+   */
+  private static void fill(GameStore store, Random random, int count) {
+    for (int i = 0; i < count; i++) {
+      AFreecellModel game = i % 2 == 0 ? new MultiMoveFreecellModel() : new SimpleFreecellModel();
+      game.startDeal(i + 1, 8, 4);
+      game.setAutoPlay(i % 3 == 0);
+      RandomPlay.play(game, random, i % 5, true);
+      long id = store.add(game);
+      RandomPlay.play(game, random, 20, true);
+      if (i % 7 == 0) {
+        store.remove(id);
+      }
+    }
+  }
+
+  @Test
+  public void testReopenAfterClose() throws IOException {
+    Path dir = folder.getRoot().toPath();
+    GameStore store = new GameStore(dir, 1000);
+    fill(store, new Random(1), 200);
+    Map<Long, String> expected = signatures(store);
+    store.close();
+
+    GameStore reopened = new GameStore(dir, 1000);
+    assertEquals(expected, signatures(reopened));
+    reopened.close();
+  }
+
+  @Test
+  public void testReopenAfterCheckpoint() throws IOException {
+    Path dir = folder.getRoot().toPath();
+    Random random = new Random(2);
+    GameStore store = new GameStore(dir, 1000);
+    fill(store, random, 100);
+    store.checkpoint();
+    for (AFreecellModel game : store.getGames().values()) {
+      RandomPlay.play(game, random, 10, true);
+    }
+    Map<Long, String> expected = signatures(store);
+    store.close();
+
+    GameStore reopened = new GameStore(dir, 1000);
+    assertEquals(expected, signatures(reopened));
+    // the ids of removed games are not given out again
+    AFreecellModel game = new SimpleFreecellModel();
+    game.startDeal(1, 8, 4);
+    long id = reopened.add(game);
+    assertEquals(null, expected.get(id));
+    reopened.close();
+  }
+
+  @Test
+  public void testRecoverAfterCrash() throws Exception {
+    Path dir = folder.newFolder("store").toPath();
+    Path expected = folder.newFile("expected").toPath();
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+            + "java";
+    Process crash = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            Crash.class.getName(), dir.toString(), expected.toString())
+            .redirectErrorStream(true).start();
+    crash.getInputStream().transferTo(System.out);
+    assertEquals(true, crash.waitFor(60, TimeUnit.SECONDS));
+    assertEquals(0, crash.exitValue());
+
+    Map<Long, String> games = new HashMap<Long, String>();
+    for (String line : Files.readAllLines(expected, StandardCharsets.UTF_8)) {
+      int space = line.indexOf(' ');
+      games.put(Long.parseLong(line.substring(0, space)), line.substring(space + 1));
+    }
+    GameStore reopened = new GameStore(dir, 1000);
+    assertEquals(games, signatures(reopened));
+    reopened.close();
+  }
+
+  @Test
+  public void testLogLongerThanOneMapping() throws IOException {
+    Path dir = folder.getRoot().toPath();
+    // enough records to fill the first 4 MB mapping of the log, without a checkpoint
+    GameStore store = new GameStore(dir, 1 << 20);
+    AFreecellModel game = new SimpleFreecellModel();
+    game.startDeal(1, 8, 4);
+    long id = store.add(game);
+    Random random = new Random(3);
+    for (int i = 0; i < 300000; i++) {
+      int n = game.getLegalMoves(MOVES);
+      if (n > 0 && i % 1000 != 999) {
+        Moves.apply(game, MOVES[random.nextInt(n)]);
+      } else {
+        game.clearJournal();
+      }
+    }
+    store.sync();
+    String expected = RandomPlay.signature(game);
+    store.close();
+
+    GameStore reopened = new GameStore(dir, 1 << 20);
+    assertNotNull(reopened.get(id));
+    assertEquals(expected, RandomPlay.signature(reopened.get(id)));
+    reopened.close();
+  }
+
+  @Test
+  public void testRestartedGamesSaved() throws IOException {
+    Path dir = folder.getRoot().toPath();
+    Random random = new Random(6);
+    GameStore store = new GameStore(dir, 1000);
+    AFreecellModel[] games = new AFreecellModel[4];
+    for (int i = 0; i < games.length; i++) {
+      games[i] = i % 2 == 0 ? new MultiMoveFreecellModel() : new SimpleFreecellModel();
+      games[i].startDeal(i + 1, 8, 4);
+      RandomPlay.play(games[i], random, 30, true);
+      store.add(games[i]);
+      RandomPlay.play(games[i], random, 30, true);
+    }
+    games[0].startDeal(100, 8, 4);
+    games[1].startGame(games[1].getDeck(), 8, 4, true);
+    AFreecellModel other = new SimpleFreecellModel();
+    other.startDeal(200, 8, 4);
+    RandomPlay.play(other, random, 30, false);
+    games[2].restoreState(PackedState.of(other));
+    int[] moves = new int[other.getJournal(new int[0])];
+    other.getJournal(moves);
+    games[3].restoreState(PackedState.of(other), moves, other.getMoveCount(), moves.length);
+    for (AFreecellModel game : games) {
+      RandomPlay.play(game, random, 30, true);
+    }
+    Map<Long, String> expected = signatures(store);
+    store.close();
+
+    GameStore reopened = new GameStore(dir, 1000);
+    assertEquals(expected, signatures(reopened));
+    reopened.close();
+  }
+
+  @Test
+  public void testGameStopsBeingSavedOnceRemoved() throws IOException {
+    Path dir = folder.getRoot().toPath();
+    GameStore store = new GameStore(dir, 1000);
+    AFreecellModel game = new SimpleFreecellModel();
+    game.startDeal(1, 8, 4);
+    long id = store.add(game);
+    store.remove(id);
+    RandomPlay.play(game, new Random(4), 20, true);
+    store.close();
+
+    GameStore reopened = new GameStore(dir, 1000);
+    assertEquals(0, reopened.getGames().size());
+    reopened.close();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRemoveFromClosedStore() throws IOException {
+    GameStore store = new GameStore(folder.getRoot().toPath(), 1000);
+    AFreecellModel game = new SimpleFreecellModel();
+    game.startDeal(1, 8, 4);
+    long id = store.add(game);
+    store.close();
+    store.remove(id);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddToClosedStore() throws IOException {
+    GameStore store = new GameStore(folder.getRoot().toPath(), 1000);
+    store.close();
+    AFreecellModel game = new SimpleFreecellModel();
+    game.startDeal(1, 8, 4);
+    store.add(game);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddGameNotStarted() throws IOException {
+    GameStore store = new GameStore(folder.getRoot().toPath(), 1000);
+    try {
+      store.add(new SimpleFreecellModel());
+    } finally {
+      store.close();
+    }
+  }
+
+  /**
+   * Fills a store, writes out the games it holds and halts without closing the store, as if the
+   * process had crashed.
+   */
+  public static final class Crash {
+    /**
+     * @param args the store's directory, then the file to write the games to.
+     * @throws IOException if the store or the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+      Random random = new Random(5);
+      GameStore store = new GameStore(Path.of(args[0]), 1000);
+      fill(store, random, 300);
+      for (AFreecellModel game : store.getGames().values()) {
+        RandomPlay.play(game, random, 10, true);
+      }
+      List<String> lines = new ArrayList<String>();
+      for (Map.Entry<Long, String> game : signatures(store).entrySet()) {
+        lines.add(game.getKey() + " " + game.getValue());
+      }
+      Files.write(Path.of(args[1]), lines, StandardCharsets.UTF_8);
+      Runtime.getRuntime().halt(0);
+    }
+  }
+}
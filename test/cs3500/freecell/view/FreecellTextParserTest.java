@@ -0,0 +1,189 @@
+package cs3500.freecell.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cs3500.freecell.model.AFreecellModel;
+import cs3500.freecell.model.FreecellModelCreator.GameType;
+import cs3500.freecell.model.Moves;
+import cs3500.freecell.model.PackedState;
+import cs3500.freecell.model.SimpleFreecellModel;
+import cs3500.freecell.model.multimove.MultiMoveFreecellModel;
+
+/**
+ * Tests for FreecellTextParser: boards written by FreecellTextView read back to the same
+ * position, and malformed boards are rejected without losing the boards after them.
+ */
+public class FreecellTextParserTest {
+
+  private static AFreecellModel deal(long dealNumber) {
+    AFreecellModel game = new SimpleFreecellModel();
+    game.startDeal(dealNumber, 8, 4);
+    return game;
+  }
+
+  private static String board(AFreecellModel game) {
+    return new FreecellTextView(game).toString();
+  }
+
+  /**
+   * Write random positions, with various numbers of piles, separated in every way the parser
+   * allows.
+   */
+  private static String boards(Random random, int count, List<PackedState> positions) {
+    int[] moves = new int[Moves.maxLegalMoves(12, 6)];
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      AFreecellModel game = new MultiMoveFreecellModel();
+      game.startDeal(i + 1, 4 + random.nextInt(9), 1 + random.nextInt(6));
+      int steps = random.nextInt(150);
+      for (int s = 0; s < steps; s++) {
+        int n = game.getLegalMoves(moves);
+        if (n > 0) {
+          Moves.apply(game, moves[random.nextInt(n)]);
+        }
+      }
+      positions.add(PackedState.of(game));
+      text.append(board(game));
+      switch (i % 4) {
+        case 0:
+          text.append("\n");
+          break;
+        case 1:
+          text.append("\n\n");
+          break;
+        case 2:
+          text.append("\r\n");
+          break;
+        default:
+          text.append("\n#full\n");
+          break;
+      }
+    }
+    return text.toString();
+  }
+
+  private static void assertReadsBack(FreecellTextParser parser, List<PackedState> expected) {
+    AFreecellModel game = new SimpleFreecellModel();
+    for (PackedState position : expected) {
+      assertTrue(parser.next(game));
+      assertEquals(position, PackedState.of(game));
+    }
+    assertFalse(parser.next(game));
+  }
+
+  @Test
+  public void testRoundTripCharBuffer() {
+    List<PackedState> expected = new ArrayList<PackedState>();
+    String text = boards(new Random(1), 500, expected);
+    assertReadsBack(new FreecellTextParser(CharBuffer.wrap(text)), expected);
+  }
+
+  @Test
+  public void testRoundTripReader() {
+    List<PackedState> expected = new ArrayList<PackedState>();
+    String text = boards(new Random(2), 500, expected);
+    assertReadsBack(new FreecellTextParser(new StringReader(text)), expected);
+  }
+
+  @Test
+  public void testParseSingleBoard() {
+    AFreecellModel game = FreecellTextParser.parse(board(deal(1)), GameType.MULTIMOVE);
+    assertTrue(game instanceof MultiMoveFreecellModel);
+    assertEquals(PackedState.of(deal(1)), PackedState.of(game));
+    assertEquals(0, game.getMoveCount());
+  }
+
+  @Test
+  public void testRejectsMalformedBoards() {
+    String good = board(deal(1));
+    String[] bad = {
+      // a card twice
+      good.replace("C1: ", "C1: A♣, "),
+      // a card missing
+      good.substring(0, good.lastIndexOf(',')),
+      // piles out of order
+      good.replace("O1:", "O2:"),
+      good.replace("C2:", "X2:"),
+      // a foundation pile not starting with an ace
+      good.replace("F1:", "F1: 2♣"),
+      // two cards in an open pile
+      good.replace("O1:", "O1: A♣, 2♣"),
+      // a comma without a card after it
+      good + ",",
+      // no cascade piles, or no board at all
+      "F1:\nF2:\nF3:\nF4:\nO1:",
+      "",
+    };
+    for (String board : bad) {
+      try {
+        FreecellTextParser.parse(board, GameType.SINGLEMOVE);
+        fail("accepted " + board);
+      } catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage(), e.getMessage().startsWith("Error: Invalid Board - "));
+      }
+    }
+  }
+
+  @Test
+  public void testToleratesSpacing() {
+    String board = board(deal(1)).replace(", ", " ,  ").replace("\n", " \r\n");
+    assertEquals(PackedState.of(deal(1)),
+            PackedState.of(FreecellTextParser.parse(board, GameType.SINGLEMOVE)));
+  }
+
+  @Test
+  public void testCarriesOnAfterRejectedBoard() {
+    String first = board(deal(1));
+    String second = board(deal(2));
+    FreecellTextParser parser = new FreecellTextParser(new StringReader(
+            first.replace("C1: ", "C1: A♣, ") + "\n" + first + "\n"
+                    + second.replace("O1:", "O2:") + "\n\n" + second));
+    AFreecellModel game = new SimpleFreecellModel();
+    try {
+      parser.next(game);
+      fail("accepted a duplicate card");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().endsWith("Duplicate Card A♣"));
+    }
+    assertTrue(parser.next(game));
+    assertEquals(PackedState.of(deal(1)), PackedState.of(game));
+    try {
+      parser.next(game);
+      fail("accepted a misnumbered pile");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().startsWith("Error: Invalid Board - "));
+    }
+    assertTrue(parser.next(game));
+    assertEquals(PackedState.of(deal(2)), PackedState.of(game));
+    assertFalse(parser.next(game));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReadFails() {
+    new FreecellTextParser(buffer -> {
+      throw new IOException("broken");
+    }).next(new SimpleFreecellModel());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullReadable() {
+    new FreecellTextParser(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullGame() {
+    new FreecellTextParser(new StringReader("")).next(null);
+  }
+}